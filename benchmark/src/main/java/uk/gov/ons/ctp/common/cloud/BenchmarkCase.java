@@ -0,0 +1,55 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A case-like document of a representative size, used as the payload for the benchmarks. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BenchmarkCase {
+  private String id;
+  private String caseRef;
+  private String caseType;
+  private String surveyType;
+  private String createdDateTime;
+  private BenchmarkAddress address;
+
+  /** The nested address of a case. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class BenchmarkAddress {
+    private String uprn;
+    private String addressLine1;
+    private String addressLine2;
+    private String addressLine3;
+    private String townName;
+    private String postcode;
+    private String region;
+    private String estabType;
+  }
+
+  /**
+   * Create a case with deterministic content.
+   *
+   * @param id the id of the case.
+   * @param postcode the postcode of the case address, to allow searches to match many cases.
+   * @return the case.
+   */
+  public static BenchmarkCase create(String id, String postcode) {
+    BenchmarkAddress address =
+        new BenchmarkAddress(
+            "10023122451",
+            "Flat 12",
+            "Lionel Road",
+            "Brentford",
+            "London",
+            postcode,
+            "E",
+            "HOUSEHOLD");
+    return new BenchmarkCase(
+        id, "1000000" + id, "HH", "CENSUS", "2020-06-15T10:43:12.000Z", address);
+  }
+}
@@ -0,0 +1,132 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+/**
+ * A local stand-in for a cloud document store, used to drive the {@link RetryableCloudDataStore}
+ * stack without any network dependency.
+ *
+ * <p>Objects are converted to and from a map representation on the way in and out, in the same way
+ * that Firestore maps Java objects to documents, so that the cost of mapping shows up in the
+ * measurements. A fixed latency can be injected into every operation, and a proportion of stores
+ * can be made to fail with a {@link DataStoreContentionException} to exercise the retry path.
+ *
+ * <p>This class lives in the same package as the data store so that it can raise the package
+ * private contention exception.
+ */
+public class InMemoryCloudDataStore implements CloudDataStore {
+
+  private final Map<String, Map<String, Map<String, Object>>> collections =
+      new ConcurrentHashMap<>();
+  private final ObjectMapper mapper = new CustomObjectMapper();
+
+  private volatile long latencyNanos;
+  private volatile double contentionRate;
+
+  /**
+   * Set the latency to inject into every data store operation.
+   *
+   * @param latencyMicros the latency in microseconds. Zero disables injection.
+   */
+  public void setLatencyMicros(long latencyMicros) {
+    this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+  }
+
+  /**
+   * Set the proportion of stores which fail with a contention error.
+   *
+   * @param contentionRate value between 0.0 (never fail) and 1.0 (always fail).
+   */
+  public void setContentionRate(double contentionRate) {
+    this.contentionRate = contentionRate;
+  }
+
+  @Override
+  public void storeObject(final String schema, final String key, final Object value)
+      throws CTPException, DataStoreContentionException {
+    pause();
+    if (contentionRate > 0 && ThreadLocalRandom.current().nextDouble() < contentionRate) {
+      throw new DataStoreContentionException(
+          "Simulated contention on schema '" + schema + "'", new Exception());
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> document = mapper.convertValue(value, Map.class);
+    collections.computeIfAbsent(schema, s -> new ConcurrentHashMap<>()).put(key, document);
+  }
+
+  @Override
+  public <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
+      throws CTPException {
+    pause();
+    Map<String, Object> document = collection(schema).get(key);
+    return document == null ? Optional.empty() : Optional.of(toObject(document, target));
+  }
+
+  @Override
+  public <T> List<T> search(Class<T> target, final String schema, String[] fieldPath, String value)
+      throws CTPException {
+    pause();
+    List<T> results = new ArrayList<>();
+    for (Map<String, Object> document : collection(schema).values()) {
+      if (value.equals(fieldValue(document, fieldPath))) {
+        results.add(toObject(document, target));
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public void deleteObject(final String schema, final String key) throws CTPException {
+    pause();
+    collection(schema).remove(key);
+  }
+
+  @Override
+  public Set<String> getCollectionNames() {
+    return collections.keySet();
+  }
+
+  private Map<String, Map<String, Object>> collection(String schema) {
+    return collections.getOrDefault(schema, Map.of());
+  }
+
+  private <T> T toObject(Map<String, Object> document, Class<T> target) throws CTPException {
+    try {
+      return mapper.convertValue(document, target);
+    } catch (IllegalArgumentException e) {
+      throw new CTPException(Fault.SYSTEM_ERROR, e, "Failed to convert document to " + target);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object fieldValue(Map<String, Object> document, String[] fieldPath) {
+    Object current = document;
+    for (String element : fieldPath) {
+      if (!(current instanceof Map)) {
+        return null;
+      }
+      current = ((Map<String, Object>) current).get(element);
+    }
+    return current;
+  }
+
+  private void pause() {
+    long nanos = latencyNanos;
+    if (nanos > 0) {
+      LockSupport.parkNanos(nanos);
+    }
+  }
+}
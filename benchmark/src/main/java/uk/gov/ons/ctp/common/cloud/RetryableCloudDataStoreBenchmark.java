@@ -0,0 +1,143 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Benchmarks for the {@link RetryableCloudDataStore} stack running over an in-memory data store.
+ *
+ * <p>Run with the GC profiler to get the allocation per operation alongside the throughput:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RetryableCloudDataStoreBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryableCloudDataStoreBenchmark {
+  private static final String SCHEMA = "case";
+  private static final String[] POSTCODE_PATH = new String[] {"address", "postcode"};
+  private static final String SEARCH_POSTCODE = "TW8 9BQ";
+  private static final int STORED_CASES = 1000;
+
+  /** Data store which has been populated with cases before the measurements begin. */
+  @State(Scope.Benchmark)
+  public static class PopulatedStore {
+    @Param({"0", "250"})
+    public long latencyMicros;
+
+    RetryableCloudDataStoreFixture fixture;
+    RetryableCloudDataStore dataStore;
+    BenchmarkCase newCase;
+
+    @Setup(Level.Trial)
+    public void setup() throws CTPException {
+      fixture = new RetryableCloudDataStoreFixture(new InMemoryCloudDataStore(), 1, 3);
+      dataStore = fixture.getRetryableCloudDataStore();
+      populate(dataStore, matchingCases());
+      newCase = BenchmarkCase.create(id(STORED_CASES), "SO15 1AA");
+      fixture.getCloudDataStore().setLatencyMicros(latencyMicros);
+    }
+
+    int matchingCases() {
+      return 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      fixture.close();
+    }
+  }
+
+  /** Populated data store in which a configurable number of cases match the search. */
+  @State(Scope.Benchmark)
+  public static class SearchableStore extends PopulatedStore {
+    @Param({"1", "10", "100"})
+    public int searchResults;
+
+    @Override
+    int matchingCases() {
+      return searchResults;
+    }
+  }
+
+  /** Data store for which a proportion of the stores fail and must be retried. */
+  @State(Scope.Benchmark)
+  public static class ContendedStore {
+    @Param({"10", "50"})
+    public int contentionPercent;
+
+    RetryableCloudDataStoreFixture fixture;
+    RetryableCloudDataStore dataStore;
+    BenchmarkCase newCase;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      InMemoryCloudDataStore cloudDataStore = new InMemoryCloudDataStore();
+      cloudDataStore.setContentionRate(contentionPercent / 100.0);
+      fixture = new RetryableCloudDataStoreFixture(cloudDataStore, 1, 30);
+      dataStore = fixture.getRetryableCloudDataStore();
+      newCase = BenchmarkCase.create(id(0), "SO15 1AA");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      fixture.close();
+    }
+  }
+
+  @Benchmark
+  public void store(PopulatedStore state) throws CTPException {
+    state.dataStore.storeObject(SCHEMA, state.newCase.getId(), state.newCase, "new case");
+  }
+
+  @Benchmark
+  public Optional<BenchmarkCase> retrieveHit(PopulatedStore state) throws CTPException {
+    return state.dataStore.retrieveObject(BenchmarkCase.class, SCHEMA, id(STORED_CASES / 2));
+  }
+
+  @Benchmark
+  public Optional<BenchmarkCase> retrieveMiss(PopulatedStore state) throws CTPException {
+    return state.dataStore.retrieveObject(BenchmarkCase.class, SCHEMA, "missing");
+  }
+
+  @Benchmark
+  public List<BenchmarkCase> search(SearchableStore state) throws CTPException {
+    return state.dataStore.search(BenchmarkCase.class, SCHEMA, POSTCODE_PATH, SEARCH_POSTCODE);
+  }
+
+  @Benchmark
+  public void storeWithContention(ContendedStore state) throws CTPException {
+    state.dataStore.storeObject(SCHEMA, state.newCase.getId(), state.newCase, "new case");
+  }
+
+  private static void populate(RetryableCloudDataStore dataStore, int matchingCases)
+      throws CTPException {
+    for (int i = 0; i < STORED_CASES; i++) {
+      String postcode = i < matchingCases ? SEARCH_POSTCODE : "PO" + i;
+      dataStore.storeObject(SCHEMA, id(i), BenchmarkCase.create(id(i), postcode), id(i));
+    }
+  }
+
+  private static String id(int i) {
+    return Integer.toString(i);
+  }
+}
@@ -0,0 +1,60 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * Wires a {@link RetryableCloudDataStore} over an {@link InMemoryCloudDataStore} in a Spring
+ * context, so that the retry annotations are honoured exactly as they are in a service.
+ */
+public class RetryableCloudDataStoreFixture implements AutoCloseable {
+
+  private final AnnotationConfigApplicationContext context;
+  private final InMemoryCloudDataStore cloudDataStore;
+
+  /**
+   * Create the fixture.
+   *
+   * @param cloudDataStore the underlying store.
+   * @param backoffMillis the initial, and maximum, delay between store retries.
+   * @param maxAttempts the maximum number of attempts to store an object.
+   */
+  public RetryableCloudDataStoreFixture(
+      InMemoryCloudDataStore cloudDataStore, int backoffMillis, int maxAttempts) {
+    this.cloudDataStore = cloudDataStore;
+
+    RetryConfig retryConfig = new RetryConfig();
+    retryConfig.setInitial(backoffMillis);
+    retryConfig.setMultiplier("1.0");
+    retryConfig.setMax(backoffMillis);
+    retryConfig.setMaxAttempts(maxAttempts);
+
+    context = new AnnotationConfigApplicationContext();
+    context.registerBean("cloudDataStore", CloudDataStore.class, () -> cloudDataStore);
+    context.registerBean("retryConfig", RetryConfig.class, () -> retryConfig);
+    context.register(
+        RetryEnabled.class,
+        CloudRetryListener.class,
+        RetryableCloudDataStoreImpl.Retrier.class,
+        RetryableCloudDataStoreImpl.class);
+    context.refresh();
+  }
+
+  public RetryableCloudDataStore getRetryableCloudDataStore() {
+    return context.getBean(RetryableCloudDataStore.class);
+  }
+
+  public InMemoryCloudDataStore getCloudDataStore() {
+    return cloudDataStore;
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+
+  @Configuration
+  @EnableRetry
+  static class RetryEnabled {}
+}
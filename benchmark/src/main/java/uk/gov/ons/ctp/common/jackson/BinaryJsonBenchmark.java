@@ -0,0 +1,157 @@
+package uk.gov.ons.ctp.common.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.domain.AddressType;
+import uk.gov.ons.ctp.common.domain.CaseType;
+import uk.gov.ons.ctp.common.domain.EstabType;
+import uk.gov.ons.ctp.common.domain.Region;
+
+/**
+ * Compares JSON with its Smile and CBOR binary forms for a page of case details, mapped with the
+ * {@link CustomObjectMapper} as services do. Each benchmark also reports the rate at which bytes
+ * are written or read as the bytes counter, which divided by the score is the size of the page in
+ * that format, so the byte savings can be read alongside the CPU cost.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar BinaryJsonBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryJsonBenchmark {
+
+  /** A page of cases, and its serialised form, in one format. */
+  @State(Scope.Benchmark)
+  public static class Cases {
+    @Param({"JSON", "SMILE", "CBOR"})
+    public String format;
+
+    @Param({"1", "50"})
+    public int caseCount;
+
+    ObjectMapper mapper;
+    ObjectReader reader;
+    List<CaseDetails> cases;
+    byte[] serialised;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      mapper = new CustomObjectMapper(factory(format));
+      reader = mapper.readerFor(CaseDetails[].class);
+      cases = new ArrayList<>();
+      for (int i = 0; i < caseCount; i++) {
+        cases.add(CaseDetails.create(i));
+      }
+      serialised = mapper.writeValueAsBytes(cases);
+    }
+
+    private static JsonFactory factory(String format) {
+      switch (format) {
+        case "SMILE":
+          return new SmileFactory();
+        case "CBOR":
+          return new CBORFactory();
+        default:
+          return null;
+      }
+    }
+  }
+
+  /** The serialised bytes written or read, reported as a rate alongside the score. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  /** Case details of the size and shape the services exchange. */
+  @Data
+  @NoArgsConstructor
+  public static class CaseDetails {
+    private UUID id;
+    private String caseRef;
+    private CaseType caseType;
+    private AddressType addressType;
+    private EstabType estabType;
+    private String addressLine1;
+    private String addressLine2;
+    private String addressLine3;
+    private String townName;
+    private String postcode;
+    private Region region;
+    private String uprn;
+    private double latitude;
+    private double longitude;
+    private boolean handDelivery;
+    private Date createdDateTime;
+    private Date lastUpdated;
+
+    static CaseDetails create(int i) {
+      CaseDetails details = new CaseDetails();
+      details.id = UUID.nameUUIDFromBytes(Integer.toString(i).getBytes());
+      details.caseRef = Long.toString(1000000000L + i);
+      details.caseType = CaseType.HH;
+      details.addressType = AddressType.HH;
+      details.estabType = EstabType.HOUSEHOLD;
+      details.addressLine1 = i + " Smith Street";
+      details.addressLine2 = "Upper Smithton";
+      details.addressLine3 = "";
+      details.townName = "Exeter";
+      details.postcode = "EX2 4LU";
+      details.region = Region.E;
+      details.uprn = Long.toString(10023122451L + i);
+      details.latitude = 50.7191 + i / 1000.0;
+      details.longitude = -3.5334 - i / 1000.0;
+      details.handDelivery = i % 7 == 0;
+      details.createdDateTime = new Date(1600000000000L + i * 1000L);
+      details.lastUpdated = new Date(1600000000000L + i * 2000L);
+      return details;
+    }
+  }
+
+  @Benchmark
+  public byte[] serialise(Cases cases, Bytes bytes) throws IOException {
+    byte[] serialised = cases.mapper.writeValueAsBytes(cases.cases);
+    bytes.bytes += serialised.length;
+    return serialised;
+  }
+
+  @Benchmark
+  public CaseDetails[] deserialise(Cases cases, Bytes bytes) throws IOException {
+    bytes.bytes += cases.serialised.length;
+    return cases.reader.readValue(cases.serialised);
+  }
+}
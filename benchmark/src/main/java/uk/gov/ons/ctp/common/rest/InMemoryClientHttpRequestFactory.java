@@ -0,0 +1,132 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Request factory which answers every request with the same response, without any network I/O, so
+ * that benchmarks measure only the client side work of a request.
+ */
+public class InMemoryClientHttpRequestFactory implements ClientHttpRequestFactory {
+  private final HttpStatus status;
+  private final MediaType contentType;
+  private final byte[] responseBody;
+
+  /**
+   * Answer every request with a 200 (OK) response.
+   *
+   * @param responseBody the JSON to answer with.
+   */
+  public InMemoryClientHttpRequestFactory(String responseBody) {
+    this(HttpStatus.OK, MediaType.APPLICATION_JSON, responseBody);
+  }
+
+  /**
+   * Answer every request with the given response.
+   *
+   * @param status the status to answer with.
+   * @param contentType the type of the response body.
+   * @param responseBody the body to answer with.
+   */
+  public InMemoryClientHttpRequestFactory(
+      HttpStatus status, MediaType contentType, String responseBody) {
+    this.status = status;
+    this.contentType = contentType;
+    this.responseBody = responseBody.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+    return new InMemoryRequest(uri, httpMethod);
+  }
+
+  private class InMemoryRequest implements ClientHttpRequest {
+    private final URI uri;
+    private final HttpMethod method;
+    private final HttpHeaders headers = new HttpHeaders();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    InMemoryRequest(URI uri, HttpMethod method) {
+      this.uri = uri;
+      this.method = method;
+    }
+
+    @Override
+    public ClientHttpResponse execute() {
+      return new InMemoryResponse();
+    }
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return method;
+    }
+
+    @Override
+    public String getMethodValue() {
+      return method.name();
+    }
+
+    @Override
+    public URI getURI() {
+      return uri;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+
+  private class InMemoryResponse implements ClientHttpResponse {
+    private final HttpHeaders headers = new HttpHeaders();
+
+    InMemoryResponse() {
+      headers.setContentType(contentType);
+      headers.setContentLength(responseBody.length);
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+      return status;
+    }
+
+    @Override
+    public int getRawStatusCode() {
+      return status.value();
+    }
+
+    @Override
+    public String getStatusText() {
+      return status.getReasonPhrase();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(responseBody);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,103 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An HTTP server on the loopback interface which stands in for a downstream service, so that
+ * benchmarks measure the whole of a {@link RestClient} call, including the socket and connection
+ * pool work, without a real service.
+ *
+ * <p>GETs of the list path are answered with the list body and all other requests with the single
+ * body, after the configured latency. Request bodies are read and discarded.
+ */
+public class LoopbackHttpServer implements AutoCloseable {
+  static {
+    // Without this Nagle's algorithm and delayed ACKs add 40ms to every response, which would
+    // swamp the client's own costs
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String listPath;
+  private final byte[] singleBody;
+  private final byte[] listBody;
+  private final long latencyMillis;
+
+  /**
+   * Start a server.
+   *
+   * @param listPath the path which is answered with the list body.
+   * @param singleBody the JSON to answer other requests with.
+   * @param listBody the JSON to answer GETs of the list path with.
+   * @param latencyMillis the time to wait before answering each request.
+   * @param threads the number of requests that can be handled at once.
+   * @throws IOException if the server can't be started.
+   */
+  public LoopbackHttpServer(
+      String listPath, String singleBody, String listBody, long latencyMillis, int threads)
+      throws IOException {
+    this.listPath = listPath;
+    this.singleBody = singleBody.getBytes(StandardCharsets.UTF_8);
+    this.listBody = listBody.getBytes(StandardCharsets.UTF_8);
+    this.latencyMillis = latencyMillis;
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "loopback-http");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    if (latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.close();
+        return;
+      }
+    }
+    boolean list =
+        "GET".equals(exchange.getRequestMethod())
+            && listPath.equals(exchange.getRequestURI().getPath());
+    byte[] body = list ? listBody : singleBody;
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Benchmarks for {@link RestClient} calls which fail with a server error, as they do when a service
+ * is overloaded and answers with HTML error pages.
+ *
+ * <p>The errorBodyBytes param is the size of the error page, and errorBodyMaxBytes is the client's
+ * limit on how much of it is read and logged, where 0 reads all of it. The failure logs are written
+ * to a discarding appender, so their formatting is included in the measurements.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RestClientFailureBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestClientFailureBenchmark {
+  private static final String PATH = "/cases/{caseId}";
+  private static final String CASE_ID = "3305e937-6fb1-4ce1-9d4c-077f147789ac";
+
+  /** Client running over an in-memory request factory which always fails. */
+  @State(Scope.Benchmark)
+  public static class FailingClient {
+    @Param({"512", "262144"})
+    public int errorBodyBytes;
+
+    @Param({"0", "4096"})
+    public int errorBodyMaxBytes;
+
+    RestClient restClient;
+
+    @Setup(Level.Trial)
+    public void setup() throws CTPException {
+      StringBuilder errorPage = new StringBuilder("<html><body>");
+      while (errorPage.length() < errorBodyBytes - 14) {
+        errorPage.append("<p>Service temporarily unavailable</p>");
+      }
+      errorPage.append("</body></html>");
+
+      RestClientConfig config =
+          RestClientConfig.builder().errorBodyMaxBytes(errorBodyMaxBytes).build();
+      restClient = new RestClient(config);
+      restClient
+          .getRestTemplate()
+          .setRequestFactory(
+              new InMemoryClientHttpRequestFactory(
+                  HttpStatus.INTERNAL_SERVER_ERROR, MediaType.TEXT_HTML, errorPage.toString()));
+    }
+  }
+
+  /** Response body, which is never returned. */
+  public static class CaseSummary {
+    public String caseId;
+  }
+
+  @Benchmark
+  public ResponseStatusException getResourceFailure(FailingClient client) {
+    try {
+      client.restClient.getResource(PATH, CaseSummary.class, CASE_ID);
+      throw new IllegalStateException("Call did not fail");
+    } catch (ResponseStatusException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Benchmarks for whole {@link RestClient} calls to a {@link LoopbackHttpServer}, across payload
+ * sizes and with one or many calling threads.
+ *
+ * <p>The payloadBytes param is the approximate size of each response body. getResources fetches a
+ * list of small cases adding up to that size, while getResource and postResource exchange a single
+ * case padded to it. The contended benchmarks share the client between 16 threads, which is where
+ * connection pool and lock contention shows. Use -p latencyMillis to add a server side delay.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RestClientLoopbackBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestClientLoopbackBenchmark {
+  private static final String SINGLE_PATH = "/cases/{caseId}";
+  private static final String LIST_PATH = "/cases";
+  private static final String CASE_ID = "3305e937-6fb1-4ce1-9d4c-077f147789ac";
+  private static final int CONTENDED_THREADS = 16;
+
+  /** A client and the server it calls. */
+  @State(Scope.Benchmark)
+  public static class Loopback {
+    @Param({"256", "8192", "131072"})
+    public int payloadBytes;
+
+    @Param({"0"})
+    public long latencyMillis;
+
+    LoopbackHttpServer server;
+    RestClient restClient;
+    CaseSummary toPost;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, CTPException {
+      String single = caseJson(0, Math.max(payloadBytes - 100, 0));
+      StringBuilder list = new StringBuilder("[");
+      for (int i = 0; list.length() < payloadBytes; i++) {
+        list.append(i == 0 ? "" : ",").append(caseJson(i, 0));
+      }
+      list.append(']');
+      server = new LoopbackHttpServer(LIST_PATH, single, list.toString(), latencyMillis, 32);
+
+      RestClientConfig config =
+          RestClientConfig.builder()
+              .port(Integer.toString(server.getPort()))
+              .connectionManagerDefaultMaxPerRoute(CONTENDED_THREADS * 2)
+              .connectionManagerMaxTotal(CONTENDED_THREADS * 2)
+              .build();
+      restClient = new RestClient(config);
+      toPost = restClient.getResource(SINGLE_PATH, CaseSummary.class, CASE_ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      server.close();
+    }
+
+    private static String caseJson(int i, int paddingBytes) {
+      return "{\"caseId\":\""
+          + CASE_ID
+          + "\",\"caseRef\":\""
+          + (1000000000L + i)
+          + "\",\"uprn\":\""
+          + (10023122451L + i)
+          + "\",\"postcode\":\"EX2 4LU\",\"notes\":\""
+          + "x".repeat(paddingBytes)
+          + "\"}";
+    }
+  }
+
+  /** The case returned by the server. */
+  @Data
+  @NoArgsConstructor
+  public static class CaseSummary {
+    private String caseId;
+    private String caseRef;
+    private String uprn;
+    private String postcode;
+    private String notes;
+  }
+
+  @Benchmark
+  public CaseSummary getResource(Loopback loopback) {
+    return loopback.restClient.getResource(SINGLE_PATH, CaseSummary.class, CASE_ID);
+  }
+
+  @Benchmark
+  public List<CaseSummary> getResources(Loopback loopback) {
+    return loopback.restClient.getResources(LIST_PATH, CaseSummary[].class);
+  }
+
+  @Benchmark
+  public CaseSummary postResource(Loopback loopback) {
+    return loopback.restClient.postResource(
+        SINGLE_PATH, loopback.toPost, CaseSummary.class, CASE_ID);
+  }
+
+  @Benchmark
+  @Threads(CONTENDED_THREADS)
+  public CaseSummary getResourceContended(Loopback loopback) {
+    return getResource(loopback);
+  }
+
+  @Benchmark
+  @Threads(CONTENDED_THREADS)
+  public List<CaseSummary> getResourcesContended(Loopback loopback) {
+    return getResources(loopback);
+  }
+
+  @Benchmark
+  @Threads(CONTENDED_THREADS)
+  public CaseSummary postResourceContended(Loopback loopback) {
+    return postResource(loopback);
+  }
+}
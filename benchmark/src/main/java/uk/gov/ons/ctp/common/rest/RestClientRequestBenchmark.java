@@ -0,0 +1,108 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.UriComponentsBuilder;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Benchmarks for the work the {@link RestClient} does to prepare a request.
+ *
+ * <p>uriBuilder and headersPerCall repeat the per call parsing, encoding and header building which
+ * the client used to do, for comparison with the compiled template and precomputed headers. The
+ * getResource benchmark runs the whole client over an in-memory request factory.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RestClientRequestBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestClientRequestBenchmark {
+  private static final String BASE_URL = "http://localhost:8080";
+  private static final String PATH = "/cases/{caseId}/addresses/{uprn}";
+  private static final String CASE_ID = "3305e937-6fb1-4ce1-9d4c-077f147789ac";
+  private static final String UPRN = "10023122451";
+
+  /** Client with basic auth credentials, running over an in-memory request factory. */
+  @State(Scope.Benchmark)
+  public static class Client {
+    RestClient restClient;
+    PathTemplate pathTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() throws CTPException {
+      RestClientConfig config =
+          RestClientConfig.builder().username("serco_cks").password("temporary").build();
+      restClient = new RestClient(config);
+      restClient
+          .getRestTemplate()
+          .setRequestFactory(
+              new InMemoryClientHttpRequestFactory(
+                  "{\"caseId\":\"" + CASE_ID + "\",\"uprn\":\"" + UPRN + "\"}"));
+      pathTemplate = PathTemplate.compile(PATH);
+    }
+  }
+
+  /** Response body for the getResource benchmark. */
+  @Data
+  @NoArgsConstructor
+  public static class CaseAddress {
+    private String caseId;
+    private String uprn;
+  }
+
+  @Benchmark
+  public URI uriBuilder() {
+    return UriComponentsBuilder.newInstance()
+        .scheme("http")
+        .host("localhost")
+        .port("8080")
+        .path(PATH)
+        .queryParams(null)
+        .buildAndExpand(CASE_ID, UPRN)
+        .encode()
+        .toUri();
+  }
+
+  @Benchmark
+  public URI pathTemplate(Client client) {
+    return URI.create(client.pathTemplate.expand(BASE_URL, null, CASE_ID, UPRN));
+  }
+
+  @Benchmark
+  public HttpEntity<Object> headersPerCall() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    String auth = "serco_cks" + ":" + "temporary";
+    byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(Charset.forName("US-ASCII")));
+    headers.set("Authorization", "Basic " + new String(encodedAuth));
+    return new HttpEntity<>(null, headers);
+  }
+
+  @Benchmark
+  public CaseAddress getResource(Client client) {
+    return client.restClient.getResource(PATH, CaseAddress.class, CASE_ID, UPRN);
+  }
+}
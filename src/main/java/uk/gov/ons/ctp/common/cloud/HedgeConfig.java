@@ -0,0 +1,17 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("cloud-storage.hedge")
+@Data
+public class HedgeConfig {
+  private boolean enabled;
+  private double percentile = 95;
+  private int minDelay = 20; // milliseconds
+  private int maxHedgePercent = 10;
+  private int threads = 20;
+  private boolean virtualThreads; // needs Java 21 or later
+}
@@ -5,6 +5,8 @@ import com.godaddy.logging.LoggerFactory;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
@@ -13,10 +15,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.hedge.Hedger;
+import uk.gov.ons.ctp.common.util.VirtualThreads;
 
 /**
  * Decorator for {@link CloudDataStore}. It is responsible for handling exponential backoffs when
  * the datastore is becoming overloaded.
+ *
+ * <p>Object retrieval can optionally be hedged, to cut the tail latency of individual reads. When
+ * enabled, a second identical read is issued if the first hasn't completed within the configured
+ * percentile of recent read latencies, and the first read to complete is used. The number of extra
+ * reads is capped at a percentage of all reads. Hedging is configured with properties such as:
+ *
+ * <pre>
+ * cloud-storage:
+ *   hedge:
+ *     enabled: true
+ *     percentile: 95
+ *     min-delay: 20
+ *     max-hedge-percent: 10
+ *     threads: 20
+ *     virtual-threads: false
+ * </pre>
  */
 @Service
 public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
@@ -24,11 +44,48 @@ public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
 
   private CloudDataStore cloudDataStore;
   private Retrier retrier;
+  private ExecutorService hedgeExecutor;
+  private Hedger hedger;
 
-  @Autowired
+  @Autowired(required = false)
   public RetryableCloudDataStoreImpl(CloudDataStore cloudDataStore, Retrier retrier) {
+    this(cloudDataStore, retrier, null);
+  }
+
+  /**
+   * Constructor, which Spring uses in preference to the one without hedging when there is a
+   * HedgeConfig bean.
+   *
+   * @param cloudDataStore the store to decorate.
+   * @param retrier retries the storage of objects.
+   * @param hedgeConfig the hedging of reads, or null to read without hedging.
+   */
+  @Autowired(required = false)
+  public RetryableCloudDataStoreImpl(
+      CloudDataStore cloudDataStore, Retrier retrier, HedgeConfig hedgeConfig) {
     this.cloudDataStore = cloudDataStore;
     this.retrier = retrier;
+    if (hedgeConfig != null && hedgeConfig.isEnabled()) {
+      log.info("CloudDataStore hedge configuration: {}", hedgeConfig);
+      // Read threads are only needed while reads are in flight. Platform threads are capped, and
+      // when they are all busy the read runs on the calling thread instead
+      hedgeExecutor =
+          VirtualThreads.newExecutor(
+              "cloud-hedge", hedgeConfig.getThreads(), hedgeConfig.isVirtualThreads());
+      hedger =
+          new Hedger(
+              hedgeExecutor,
+              hedgeConfig.getPercentile(),
+              hedgeConfig.getMinDelay(),
+              hedgeConfig.getMaxHedgePercent());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (hedgeExecutor != null) {
+      hedgeExecutor.shutdownNow();
+    }
   }
 
   @Override
@@ -50,7 +107,22 @@ public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
   @Override
   public <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
       throws CTPException {
-    return cloudDataStore.retrieveObject(target, schema, key);
+    if (hedger == null) {
+      return cloudDataStore.retrieveObject(target, schema, key);
+    }
+
+    try {
+      return hedger.call(() -> cloudDataStore.retrieveObject(target, schema, key));
+    } catch (CTPException | RuntimeException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CTPException(
+          Fault.SYSTEM_ERROR, e, "Interrupted retrieving object with key " + key);
+    } catch (Exception e) {
+      log.with("schema", schema).with("key", key).error(e, "Hedged retrieval failed");
+      throw new CTPException(Fault.SYSTEM_ERROR, e, "Failed to retrieve object with key " + key);
+    }
   }
 
   @Override
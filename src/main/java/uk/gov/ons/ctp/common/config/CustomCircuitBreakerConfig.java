@@ -35,20 +35,7 @@ public class CustomCircuitBreakerConfig {
   public Customizer<Resilience4JCircuitBreakerFactory> defaultCircuitBreakerCustomiser() {
     TimeLimiterConfig timeLimiterConfig =
         TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(timeout)).build();
-    CircuitBreakerConfig cbConfig =
-        CircuitBreakerConfig.custom()
-            .minimumNumberOfCalls(minNumberOfCalls)
-            .slidingWindowSize(slidingWindowSize)
-            .failureRateThreshold(failureRateThreshold)
-            .slowCallRateThreshold(slowCallRateThreshold)
-            .writableStackTraceEnabled(writableStackTraceEnabled)
-            .waitDurationInOpenState(Duration.ofSeconds(waitDurationSecondsInOpenState))
-            .slowCallDurationThreshold(Duration.ofSeconds(slowCallDurationSecondsThreshold))
-            .permittedNumberOfCallsInHalfOpenState(permittedNumberOfCallsInHalfOpenState)
-            .slidingWindowType(slidingWindowType)
-            .automaticTransitionFromOpenToHalfOpenEnabled(
-                automaticTransitionFromOpenToHalfOpenEnabled)
-            .build();
+    CircuitBreakerConfig cbConfig = circuitBreakerConfig();
 
     return factory ->
         factory.configureDefault(
@@ -58,4 +45,19 @@ public class CustomCircuitBreakerConfig {
                     .circuitBreakerConfig(cbConfig)
                     .build());
   }
+
+  public CircuitBreakerConfig circuitBreakerConfig() {
+    return CircuitBreakerConfig.custom()
+        .minimumNumberOfCalls(minNumberOfCalls)
+        .slidingWindowSize(slidingWindowSize)
+        .failureRateThreshold(failureRateThreshold)
+        .slowCallRateThreshold(slowCallRateThreshold)
+        .writableStackTraceEnabled(writableStackTraceEnabled)
+        .waitDurationInOpenState(Duration.ofSeconds(waitDurationSecondsInOpenState))
+        .slowCallDurationThreshold(Duration.ofSeconds(slowCallDurationSecondsThreshold))
+        .permittedNumberOfCallsInHalfOpenState(permittedNumberOfCallsInHalfOpenState)
+        .slidingWindowType(slidingWindowType)
+        .automaticTransitionFromOpenToHalfOpenEnabled(automaticTransitionFromOpenToHalfOpenEnabled)
+        .build();
+  }
 }
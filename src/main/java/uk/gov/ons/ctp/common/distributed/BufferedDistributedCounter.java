@@ -0,0 +1,215 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Counts events across instances, for metrics style counters which are incremented too often to
+ * call Redis for each event.
+ *
+ * <p>Increments are added to a {@link LongAdder} for each counter, which spreads concurrent updates
+ * over striped cells rather than contending on one value. The pending deltas are added to the
+ * {@link DistributedAtomicLong} in one batch on a schedule, and sooner when a counter's pending
+ * delta reaches the threshold. Reads return the global value as of the last flush plus the
+ * instance's pending delta, so they don't call Redis either, but don't include what other instances
+ * have counted since the last flush. A delta being flushed is still counted by reads until its
+ * reply has updated the global value, so a counter isn't seen to go down while it is flushed.
+ *
+ * <p>Only the counters which have been counted or read since the last flush are sent in the next
+ * one. A counter which has been idle for a whole flush interval reads its global value from Redis
+ * again the next time it is read.
+ *
+ * <p>Increments don't return the new value, as it isn't known until the next flush. A delta that
+ * fails to flush is kept and added again on the next flush. Close the counter to flush what is
+ * pending and stop the flush thread.
+ */
+public class BufferedDistributedCounter implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(BufferedDistributedCounter.class);
+
+  private final DistributedAtomicLong distributedAtomicLong;
+  private final long flushThreshold;
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService flusher;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  // One flush at a time, so that global values are updated in the order they were read
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  /**
+   * Constructor
+   *
+   * @param distributedAtomicLong the distributed values to flush the counts to.
+   * @param flushIntervalMillis the time between flushes.
+   * @param flushThreshold the pending delta of a counter at which a flush is started before the
+   *     next scheduled one. Use '0' to only flush on the schedule.
+   */
+  public BufferedDistributedCounter(
+      DistributedAtomicLong distributedAtomicLong, long flushIntervalMillis, long flushThreshold) {
+    this.distributedAtomicLong = distributedAtomicLong;
+    this.flushThreshold = flushThreshold;
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "buffered-counter-flush");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(
+        this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Count an event.
+   *
+   * @param key the reference for the counter.
+   */
+  public void increment(String key) {
+    add(key, 1);
+  }
+
+  /**
+   * Count several events.
+   *
+   * @param key the reference for the counter.
+   * @param delta the number of events.
+   */
+  public void add(String key, long delta) {
+    LongAdder pending = counters.computeIfAbsent(key, k -> new Counter()).pending;
+    pending.add(delta);
+    if (flushThreshold > 0
+        && pending.sum() >= flushThreshold
+        && flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(this::flushQuietly);
+      } catch (RejectedExecutionException e) {
+        // closed, so the delta is only flushed if flush is called
+      }
+    }
+  }
+
+  /**
+   * Get the count. The first read of a counter which hasn't been flushed reads its global value.
+   *
+   * @param key the reference for the counter.
+   * @return the global count as of the last flush, plus the events this instance has counted since.
+   */
+  public long getValue(String key) {
+    Counter counter = counters.computeIfAbsent(key, k -> new Counter());
+    counter.lock.lock();
+    try {
+      if (!counter.synced) {
+        counter.global = distributedAtomicLong.getValue(key);
+        counter.synced = true;
+      }
+      counter.read = true;
+      return counter.global + counter.flushing + counter.pending.sum();
+    } finally {
+      counter.lock.unlock();
+    }
+  }
+
+  /**
+   * Add the pending deltas of the counters to their global values, and refresh the global values of
+   * the counters which have been read since the last flush, in one round trip.
+   */
+  public void flush() {
+    flushLock.lock();
+    try {
+      flushRequested.set(false);
+      if (counters.isEmpty()) {
+        return;
+      }
+      Map<String, Long> deltas = new LinkedHashMap<>();
+      counters.forEach(
+          (key, counter) -> {
+            counter.lock.lock();
+            try {
+              // sumThenReset doesn't lose increments made while it runs, they stay pending
+              long delta = counter.pending.sumThenReset();
+              if (delta != 0 || counter.read) {
+                counter.flushing = delta;
+                counter.read = false;
+                deltas.put(key, delta);
+              } else {
+                counter.synced = false;
+              }
+            } finally {
+              counter.lock.unlock();
+            }
+          });
+      if (deltas.isEmpty()) {
+        return;
+      }
+      Map<String, Long> values;
+      try {
+        values = distributedAtomicLong.addAll(deltas);
+      } catch (RuntimeException e) {
+        deltas.forEach(
+            (key, delta) ->
+                update(
+                    counters.get(key),
+                    counter -> {
+                      counter.pending.add(counter.flushing);
+                      counter.flushing = 0;
+                    }));
+        throw e;
+      }
+      values.forEach(
+          (key, value) ->
+              update(
+                  counters.get(key),
+                  counter -> {
+                    counter.global = value;
+                    counter.flushing = 0;
+                    counter.synced = true;
+                  }));
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** Flush what is pending and stop flushing. */
+  @Override
+  public void close() {
+    flusher.shutdown();
+    flushQuietly();
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.with("counters", counters.size()).warn("Failed to flush counters, will retry", e);
+    }
+  }
+
+  private static void update(Counter counter, Consumer<Counter> update) {
+    counter.lock.lock();
+    try {
+      update.accept(counter);
+    } finally {
+      counter.lock.unlock();
+    }
+  }
+
+  private static class Counter {
+    private final LongAdder pending = new LongAdder();
+    // Guards moving a delta between pending, flushing and global, so that reads see it once
+    private final ReentrantLock lock = new ReentrantLock();
+    private long global;
+    // The delta which has been sent to Redis, and isn't in global yet
+    private long flushing;
+    private boolean synced;
+    private boolean read;
+  }
+}
@@ -1,5 +1,8 @@
 package uk.gov.ons.ctp.common.distributed;
 
+import java.util.Collection;
+import java.util.Map;
+
 /** Manage a count in a distributed service. */
 public interface DistributedAtomicLong {
 
@@ -35,6 +38,33 @@ public interface DistributedAtomicLong {
    */
   long decrementAndGet(String key);
 
+  /**
+   * Get the values of several distributed AtomicLongs in one round trip.
+   *
+   * @param keys the references for the distributed AtomicLongs.
+   * @return the current value of each, by key, in the order of the keys.
+   */
+  Map<String, Long> getValues(Collection<String> keys);
+
+  /**
+   * Increment several distributed AtomicLongs in one round trip. Each is incremented atomically,
+   * but not together with the others.
+   *
+   * @param keys the references for the distributed AtomicLongs.
+   * @return the value of each, as incrementAndGet returns it, by key, in the order of the keys.
+   */
+  Map<String, Long> incrementAll(Collection<String> keys);
+
+  /**
+   * Add to several distributed AtomicLongs in one round trip. Each addition is atomic, but not
+   * together with the others. A value that is added 0 to is only read, and isn't created if it
+   * doesn't exist.
+   *
+   * @param deltas the amount to add to each distributed AtomicLong, by key.
+   * @return the value of each after the addition, by key, in the order of the deltas.
+   */
+  Map<String, Long> addAll(Map<String, Long> deltas);
+
   /**
    * Delete the distributed AtomicLong.
    *
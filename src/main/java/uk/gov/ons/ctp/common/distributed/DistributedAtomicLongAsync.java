@@ -0,0 +1,77 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link DistributedAtomicLong}. Each method does what the method of
+ * the same name without the Async suffix does, and completes the future with its result.
+ */
+public interface DistributedAtomicLongAsync {
+
+  /**
+   * Get value.
+   *
+   * @param key the reference for the distributed AtomicLong.
+   * @return future of the current value.
+   */
+  CompletableFuture<Long> getValueAsync(String key);
+
+  /**
+   * Atomically set the given value.
+   *
+   * @param key the reference for the distributed AtomicLong.
+   * @param setValue the value to set
+   * @return future which completes when the value is set.
+   */
+  CompletableFuture<Void> setValueAsync(String key, long setValue);
+
+  /**
+   * Atomically Increment the value.
+   *
+   * @param key the reference for the distributed AtomicLong.
+   * @return future of the value, as incrementAndGet returns it.
+   */
+  CompletableFuture<Long> incrementAndGetAsync(String key);
+
+  /**
+   * Atomically Decrement the value.
+   *
+   * @param key the reference for the distributed AtomicLong.
+   * @return future of the value, as decrementAndGet returns it.
+   */
+  CompletableFuture<Long> decrementAndGetAsync(String key);
+
+  /**
+   * Get the values of several distributed AtomicLongs in one round trip.
+   *
+   * @param keys the references for the distributed AtomicLongs.
+   * @return future of the current value of each, by key, in the order of the keys.
+   */
+  CompletableFuture<Map<String, Long>> getValuesAsync(Collection<String> keys);
+
+  /**
+   * Increment several distributed AtomicLongs in one round trip.
+   *
+   * @param keys the references for the distributed AtomicLongs.
+   * @return future of the value of each, as incrementAndGet returns it, by key.
+   */
+  CompletableFuture<Map<String, Long>> incrementAllAsync(Collection<String> keys);
+
+  /**
+   * Add to several distributed AtomicLongs in one round trip.
+   *
+   * @param deltas the amount to add to each distributed AtomicLong, by key.
+   * @return future of the value of each after the addition, by key.
+   */
+  CompletableFuture<Map<String, Long>> addAllAsync(Map<String, Long> deltas);
+
+  /**
+   * Delete the distributed AtomicLong.
+   *
+   * @param key the reference for the distributed AtomicLong.
+   * @return future of true if it existed and was deleted, else false.
+   */
+  CompletableFuture<Boolean> deleteAsync(String key);
+}
@@ -1,15 +1,81 @@
 package uk.gov.ons.ctp.common.distributed;
 
-import java.util.concurrent.TimeUnit;
-import org.redisson.api.RAtomicLong;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RScript.Mode;
+import org.redisson.api.RScript.ReturnType;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
 
-/** DistributedAtomicLong implementation. */
+/**
+ * DistributedAtomicLong implementation.
+ *
+ * <p>Each operation is a Lua script, which sets the expiry of the AtomicLong if it has none in the
+ * same round trip as the operation itself. The multi-key operations send the scripts for all the
+ * keys in one batch.
+ *
+ * <p>AtomicLongs which every instance increments can be sharded, so that each is spread over
+ * several Redis keys rather than being one hot key. An increment goes to a random shard, and reads
+ * sum the shards in one batch. The value is then only approximate while it is being updated, as the
+ * shards aren't read together, and decrementAndGet takes two round trips, or more if the shard it
+ * chose is drained by another instance first. The shards of a key can be hash tagged, which keeps
+ * them in one cluster slot so that a read only calls one node, or left untagged, which spreads them
+ * over the nodes of a cluster.
+ */
 public class DistributedAtomicLongRedissonImpl extends DistributedManagerBase
-    implements DistributedAtomicLong {
+    implements DistributedAtomicLong, DistributedAtomicLongAsync {
+
+  // Sets the expiry in ARGV[1] seconds, if positive, on KEYS[1] if it exists without one
+  private static final String EXPIRE =
+      "if tonumber(ARGV[1]) > 0 and redis.call('ttl', KEYS[1]) == -1 then "
+          + "redis.call('expire', KEYS[1], ARGV[1]); "
+          + "end; ";
+
+  private static final String GET =
+      "local value = redis.call('get', KEYS[1]); "
+          + EXPIRE
+          + "if value == false then return 0; end; "
+          + "return tonumber(value);";
+
+  private static final String SET = "redis.call('set', KEYS[1], ARGV[2]); " + EXPIRE + "return 0;";
+
+  // Returns the value before the increment
+  private static final String INCREMENT =
+      "local value = redis.call('incr', KEYS[1]); " + EXPIRE + "return value - 1;";
+
+  // Returns the value before the decrement, or 0 without decrementing if it isn't positive
+  private static final String DECREMENT =
+      "local value = tonumber(redis.call('get', KEYS[1]) or '0'); "
+          + "if value > 0 then redis.call('decr', KEYS[1]); else value = 0; end; "
+          + EXPIRE
+          + "return value;";
+
+  // Adds ARGV[2] and returns the value after it, without creating the value if ARGV[2] is 0
+  private static final String ADD =
+      "local value; "
+          + "if tonumber(ARGV[2]) == 0 then "
+          + "value = tonumber(redis.call('get', KEYS[1]) or '0'); "
+          + "else value = redis.call('incrby', KEYS[1], ARGV[2]); end; "
+          + EXPIRE
+          + "return value;";
 
   private Integer timeToLive = 0;
   private RedissonClient redissonClient;
+  private int shards = 1;
+  private boolean hashTagged;
 
   /**
    * Constructor
@@ -26,47 +92,342 @@ public class DistributedAtomicLongRedissonImpl extends DistributedManagerBase
     this.redissonClient = redissonClient;
   }
 
+  /**
+   * Constructor for sharded AtomicLongs
+   *
+   * @param keyRoot each distrubuted AtomicLong created will be stored with this prefix in its key
+   * @param redissonClient the client connected to the underlying redis server
+   * @param timeToLive the time that each AtomicLong will be allowed to live in seconds before the
+   *     underlying redis server purges it. If minus number or zero will not have expiry set.
+   * @param shards the number of Redis keys to spread each AtomicLong over. Use '1' to not shard.
+   * @param hashTagged true to keep the shards of each AtomicLong in one cluster slot.
+   */
+  public DistributedAtomicLongRedissonImpl(
+      String keyRoot,
+      RedissonClient redissonClient,
+      Integer timeToLive,
+      int shards,
+      boolean hashTagged) {
+    this(keyRoot, redissonClient, timeToLive);
+    if (shards < 1) {
+      throw new IllegalArgumentException("shards must be at least 1");
+    }
+    this.shards = shards;
+    this.hashTagged = hashTagged;
+  }
+
   @Override
   public long getValue(String key) {
-    RAtomicLong value = setExpiry(key);
-    return value.get();
+    return eval(GET, key);
   }
 
   @Override
   public void setValue(String key, long setValue) {
-    RAtomicLong value = setExpiry(key);
-    value.set(setValue);
+    if (shards == 1) {
+      eval(SET, key, setValue);
+    } else {
+      setShards(key, setValue).execute();
+    }
   }
 
   @Override
   public long incrementAndGet(String key) {
-    RAtomicLong value = setExpiry(key);
-    return value.getAndIncrement();
+    return eval(INCREMENT, key);
   }
 
   @Override
   public long decrementAndGet(String key) {
-    RAtomicLong value = setExpiry(key);
-    return (value.get() > 0) ? value.getAndDecrement() : 0;
+    if (shards == 1) {
+      return eval(DECREMENT, key);
+    }
+    // Another instance may drain the chosen shard before it is decremented, in which case the
+    // shards are read again and another is tried
+    for (int attempt = 0; attempt < shards; attempt++) {
+      List<Long> values = readShards(key).execute();
+      int shard = shardToDecrement(values);
+      if (shard < 0) {
+        return 0;
+      }
+      Long previous =
+          redissonClient
+              .getScript(LongCodec.INSTANCE)
+              .eval(Mode.READ_WRITE, DECREMENT, ReturnType.INTEGER, shardKey(key, shard), args());
+      if (previous > 0) {
+        return total(values, shard, previous);
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public Map<String, Long> getValues(Collection<String> keys) {
+    return evalAll(GET, keys, key -> args()).execute();
+  }
+
+  @Override
+  public Map<String, Long> incrementAll(Collection<String> keys) {
+    return evalAll(INCREMENT, keys, key -> args()).execute();
+  }
+
+  @Override
+  public Map<String, Long> addAll(Map<String, Long> deltas) {
+    return evalAll(ADD, deltas.keySet(), key -> args(deltas.get(key))).execute();
   }
 
   @Override
   public boolean delete(String key) {
-    return redissonClient.getAtomicLong(createGlobalKey(key)).delete();
+    if (shards == 1) {
+      return redissonClient.getAtomicLong(createGlobalKey(key)).delete();
+    }
+    return redissonClient.getKeys().delete(shardKeys(key).toArray(new String[0])) > 0;
+  }
+
+  @Override
+  public CompletableFuture<Long> getValueAsync(String key) {
+    return evalAsync(GET, key);
+  }
+
+  @Override
+  public CompletableFuture<Void> setValueAsync(String key, long setValue) {
+    if (shards == 1) {
+      return evalAsync(SET, key, setValue).thenApply(result -> null);
+    }
+    return setShards(key, setValue).executeAsync();
+  }
+
+  @Override
+  public CompletableFuture<Long> incrementAndGetAsync(String key) {
+    return evalAsync(INCREMENT, key);
+  }
+
+  @Override
+  public CompletableFuture<Long> decrementAndGetAsync(String key) {
+    if (shards == 1) {
+      return evalAsync(DECREMENT, key);
+    }
+    return decrementShardAsync(key, 0);
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Long>> getValuesAsync(Collection<String> keys) {
+    return evalAll(GET, keys, key -> args()).executeAsync();
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Long>> incrementAllAsync(Collection<String> keys) {
+    return evalAll(INCREMENT, keys, key -> args()).executeAsync();
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Long>> addAllAsync(Map<String, Long> deltas) {
+    return evalAll(ADD, deltas.keySet(), key -> args(deltas.get(key))).executeAsync();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteAsync(String key) {
+    if (shards == 1) {
+      return redissonClient.getAtomicLong(createGlobalKey(key)).deleteAsync().toCompletableFuture();
+    }
+    return redissonClient
+        .getKeys()
+        .deleteAsync(shardKeys(key).toArray(new String[0]))
+        .toCompletableFuture()
+        .thenApply(deleted -> deleted > 0);
+  }
+
+  private long eval(String script, String key, Object... values) {
+    if (shards > 1) {
+      return evalAll(script, Collections.singletonList(key), k -> args(values)).execute().get(key);
+    }
+    Long result =
+        redissonClient
+            .getScript(LongCodec.INSTANCE)
+            .eval(Mode.READ_WRITE, script, ReturnType.INTEGER, shardKey(key, 0), args(values));
+    return result;
+  }
+
+  private CompletableFuture<Long> evalAsync(String script, String key, Object... values) {
+    if (shards > 1) {
+      return evalAll(script, Collections.singletonList(key), k -> args(values))
+          .executeAsync()
+          .thenApply(results -> results.get(key));
+    }
+    return redissonClient
+        .getScript(LongCodec.INSTANCE)
+        .<Long>evalAsync(
+            Mode.READ_WRITE, script, ReturnType.INTEGER, shardKey(key, 0), args(values))
+        .toCompletableFuture();
+  }
+
+  /**
+   * Prepare a batch which runs a script for each of the keys. For sharded keys the script is run on
+   * a random shard, and the other shards are read.
+   *
+   * @param script the script to run.
+   * @param keys the keys to run it for.
+   * @param args the script args for each key.
+   * @return the batch, whose result is the result for each key, summed over its shards, in the
+   *     order of the keys.
+   */
+  private PendingBatch<Map<String, Long>> evalAll(
+      String script, Collection<String> keys, Function<String, Object[]> args) {
+    if (keys.isEmpty()) {
+      return new PendingBatch<>(null, Collections::emptyMap);
+    }
+    RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+    RScript batchScript = batch.getScript(LongCodec.INSTANCE);
+    Map<String, List<RFuture<Long>>> futures = new LinkedHashMap<>();
+    for (String key : keys) {
+      int target = shards == 1 ? 0 : ThreadLocalRandom.current().nextInt(shards);
+      List<RFuture<Long>> shardFutures = new ArrayList<>(shards);
+      for (int i = 0; i < shards; i++) {
+        shardFutures.add(
+            batchScript.evalAsync(
+                Mode.READ_WRITE,
+                i == target ? script : GET,
+                ReturnType.INTEGER,
+                shardKey(key, i),
+                i == target ? args.apply(key) : args()));
+      }
+      futures.put(key, shardFutures);
+    }
+    return new PendingBatch<>(
+        batch,
+        () -> {
+          Map<String, Long> results = new LinkedHashMap<>();
+          futures.forEach(
+              (key, shardFutures) ->
+                  results.put(key, shardFutures.stream().mapToLong(RFuture::getNow).sum()));
+          return results;
+        });
+  }
+
+  /** Prepare a batch which puts the whole value in the first shard, and zeroes the others. */
+  private PendingBatch<Void> setShards(String key, long setValue) {
+    RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+    RScript batchScript = batch.getScript(LongCodec.INSTANCE);
+    for (int i = 0; i < shards; i++) {
+      batchScript.evalAsync(
+          Mode.READ_WRITE, SET, ReturnType.INTEGER, shardKey(key, i), args(i == 0 ? setValue : 0L));
+    }
+    return new PendingBatch<>(batch, () -> null);
+  }
+
+  /** Prepare a batch which reads the value of each shard. */
+  private PendingBatch<List<Long>> readShards(String key) {
+    RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+    RScript batchScript = batch.getScript(LongCodec.INSTANCE);
+    List<RFuture<Long>> futures = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      futures.add(
+          batchScript.evalAsync(
+              Mode.READ_WRITE, GET, ReturnType.INTEGER, shardKey(key, i), args()));
+    }
+    return new PendingBatch<>(
+        batch, () -> futures.stream().map(RFuture::getNow).collect(Collectors.toList()));
+  }
+
+  /** Decrement a shard as decrementAndGet does, retrying if the chosen shard has been drained. */
+  private CompletableFuture<Long> decrementShardAsync(String key, int attempt) {
+    if (attempt == shards) {
+      return CompletableFuture.completedFuture(0L);
+    }
+    return readShards(key)
+        .executeAsync()
+        .thenCompose(
+            values -> {
+              int shard = shardToDecrement(values);
+              if (shard < 0) {
+                return CompletableFuture.completedFuture(0L);
+              }
+              return redissonClient
+                  .getScript(LongCodec.INSTANCE)
+                  .<Long>evalAsync(
+                      Mode.READ_WRITE, DECREMENT, ReturnType.INTEGER, shardKey(key, shard), args())
+                  .toCompletableFuture()
+                  .thenCompose(
+                      previous ->
+                          previous > 0
+                              ? CompletableFuture.completedFuture(total(values, shard, previous))
+                              : decrementShardAsync(key, attempt + 1));
+            });
   }
 
   /**
-   * Set the expiry if not already set and one required. If timeToLive is less than or equal to zero
-   * do not set expiry and allow to remain until explicitly deleted.
+   * Choose the shard to decrement, which is the largest, as it is positive whenever the value is.
    *
-   * @param key the name of distributed AtomicLong.
-   * @return RAtomicLong
+   * @param values the value of each shard.
+   * @return the index of the shard, or -1 if the value isn't positive.
    */
-  private RAtomicLong setExpiry(String key) {
-    RAtomicLong value = redissonClient.getAtomicLong(createGlobalKey(key));
-    if (value.remainTimeToLive() < 0 && timeToLive >= 0) {
-      value.expire(timeToLive, TimeUnit.SECONDS);
+  private static int shardToDecrement(List<Long> values) {
+    int largest = 0;
+    for (int i = 1; i < values.size(); i++) {
+      if (values.get(i) > values.get(largest)) {
+        largest = i;
+      }
+    }
+    return sum(values) > 0 ? largest : -1;
+  }
+
+  /** The value before a decrement, given the value of the decremented shard just before it. */
+  private static long total(List<Long> values, int shard, long shardValue) {
+    return sum(values) - values.get(shard) + shardValue;
+  }
+
+  private static long sum(List<Long> values) {
+    return values.stream().mapToLong(Long::longValue).sum();
+  }
+
+  /** The Redis key of a shard of an AtomicLong, or of the AtomicLong if it isn't sharded. */
+  private List<Object> shardKey(String key, int shard) {
+    if (shards == 1) {
+      return Collections.singletonList(createGlobalKey(key));
+    }
+    return Collections.singletonList(
+        createGlobalKey(hashTagged ? "{" + key + "}" : key) + ":" + shard);
+  }
+
+  private List<String> shardKeys(String key) {
+    List<String> shardKeys = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      shardKeys.add((String) shardKey(key, i).get(0));
+    }
+    return shardKeys;
+  }
+
+  /** The script args: the time to live, followed by any values for the operation. */
+  private Object[] args(Object... values) {
+    List<Object> args = new ArrayList<>(values.length + 1);
+    args.add(timeToLive == null ? 0L : timeToLive.longValue());
+    Collections.addAll(args, values);
+    return args.toArray();
+  }
+
+  /**
+   * Commands queued in a batch, which can be sent either blocking or async, and the result to
+   * collect from their futures once it has been sent.
+   */
+  private static class PendingBatch<R> {
+    private final RBatch batch;
+    private final Supplier<R> result;
+
+    PendingBatch(RBatch batch, Supplier<R> result) {
+      this.batch = batch;
+      this.result = result;
+    }
+
+    R execute() {
+      if (batch != null) {
+        batch.execute();
+      }
+      return result.get();
+    }
+
+    CompletableFuture<R> executeAsync() {
+      if (batch == null) {
+        return CompletableFuture.completedFuture(result.get());
+      }
+      return batch.executeAsync().toCompletableFuture().thenApply(responses -> result.get());
     }
-    return value;
   }
 }
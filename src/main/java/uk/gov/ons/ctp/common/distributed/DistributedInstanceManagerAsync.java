@@ -0,0 +1,31 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import java.util.concurrent.CompletableFuture;
+
+/** Non-blocking counterpart of {@link DistributedInstanceManager}. */
+public interface DistributedInstanceManagerAsync {
+
+  /**
+   * Get count of running service instances.
+   *
+   * @param key the name of the service instance count.
+   * @return future of the count of running service instances.
+   */
+  CompletableFuture<Long> getInstanceCountAsync(String key);
+
+  /**
+   * Increment count of running service instances.
+   *
+   * @param key the name of the service instance count.
+   * @return future of the count, as incrementInstanceCount returns it.
+   */
+  CompletableFuture<Long> incrementInstanceCountAsync(String key);
+
+  /**
+   * Decrement count of running service instances.
+   *
+   * @param key the name of the service instance count.
+   * @return future of the count, as decrementInstanceCount returns it.
+   */
+  CompletableFuture<Long> decrementInstanceCountAsync(String key);
+}
@@ -1,11 +1,12 @@
 package uk.gov.ons.ctp.common.distributed;
 
+import java.util.concurrent.CompletableFuture;
 import org.redisson.api.RAtomicLong;
 import org.redisson.api.RedissonClient;
 
 /** DistributedInstanceManager implementation */
 public class DistributedInstanceManagerRedissonImpl extends DistributedManagerBase
-    implements DistributedInstanceManager {
+    implements DistributedInstanceManager, DistributedInstanceManagerAsync {
 
   private RedissonClient redissonClient;
 
@@ -36,4 +37,30 @@ public class DistributedInstanceManagerRedissonImpl extends DistributedManagerBa
     RAtomicLong instanceCount = redissonClient.getAtomicLong(createGlobalKey(key));
     return (instanceCount.get() > 0) ? instanceCount.getAndDecrement() : 0;
   }
+
+  @Override
+  public CompletableFuture<Long> getInstanceCountAsync(String key) {
+    return redissonClient.getAtomicLong(createGlobalKey(key)).getAsync().toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Long> incrementInstanceCountAsync(String key) {
+    return redissonClient
+        .getAtomicLong(createGlobalKey(key))
+        .getAndIncrementAsync()
+        .toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Long> decrementInstanceCountAsync(String key) {
+    RAtomicLong instanceCount = redissonClient.getAtomicLong(createGlobalKey(key));
+    return instanceCount
+        .getAsync()
+        .toCompletableFuture()
+        .thenCompose(
+            count ->
+                count > 0
+                    ? instanceCount.getAndDecrementAsync().toCompletableFuture()
+                    : CompletableFuture.completedFuture(0L));
+  }
 }
@@ -0,0 +1,44 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link DistributedLatchManager}. Waiting for a latch doesn't hold a
+ * thread: the future completes when the latch reaches zero or the wait times out.
+ */
+public interface DistributedLatchManagerAsync {
+
+  /**
+   * Set distributed countdownlatch by name, if it has reached zero or is not set at all.
+   *
+   * @param key the name of the latch.
+   * @param instanceCount value to which to set latch count.
+   * @return future of true if count set, false if previous count existed and not reached zero.
+   */
+  CompletableFuture<Boolean> setCountDownLatchAsync(String key, long instanceCount);
+
+  /**
+   * Decrement the distributed latch count if it is greater than zero.
+   *
+   * @param key the name of the latch to decrement.
+   * @return future which completes when the count has been decremented.
+   */
+  CompletableFuture<Void> countDownAsync(String key);
+
+  /**
+   * Wait, without blocking a thread, until the latch has counted down to zero or a configurable
+   * timeout is reached.
+   *
+   * @param key the name of the latch to wait for.
+   * @return future of true if the count reached zero and false if the waiting time elapsed.
+   */
+  CompletableFuture<Boolean> awaitCountDownLatchAsync(String key);
+
+  /**
+   * Deletes the distributed object representing the latch.
+   *
+   * @param key the name of the latch to delete.
+   * @return future of true if distributed object exists and false otherwise.
+   */
+  CompletableFuture<Boolean> deleteCountDownLatchAsync(String key);
+}
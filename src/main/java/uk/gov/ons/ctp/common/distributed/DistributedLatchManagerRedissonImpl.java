@@ -1,13 +1,37 @@
 package uk.gov.ons.ctp.common.distributed;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import org.redisson.api.RCountDownLatch;
+import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
 
-/** DistributedLatchManager implementation */
+/**
+ * DistributedLatchManager implementation
+ *
+ * <p>Redisson has no async wait for a latch, so awaitCountDownLatchAsync subscribes to the channel
+ * that Redisson publishes to when the count reaches zero, and checks the count with an async call
+ * when a message arrives. The count is also polled every few seconds, in case a message is missed.
+ * Only the scheduling of the polls uses a thread, which is shared by all the waits.
+ */
 public class DistributedLatchManagerRedissonImpl extends DistributedManagerBase
-    implements DistributedLatchManager {
+    implements DistributedLatchManager, DistributedLatchManagerAsync {
+  // The channel that Redisson's RCountDownLatch publishes to
+  private static final String CHANNEL_PREFIX = "redisson_countdownlatch__channel__{";
+  private static final long AWAIT_POLL_MILLIS = 2000;
+  private static final ScheduledExecutorService POLLER =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread thread = new Thread(r, "latch-poll");
+            thread.setDaemon(true);
+            return thread;
+          });
 
   private Integer timeToWait;
   private RedissonClient redissonClient;
@@ -46,4 +70,81 @@ public class DistributedLatchManagerRedissonImpl extends DistributedManagerBase
   public boolean deleteCountDownLatch(String key) {
     return redissonClient.getCountDownLatch(createGlobalKey(key)).delete();
   }
+
+  @Override
+  public CompletableFuture<Boolean> setCountDownLatchAsync(String key, long instanceCount) {
+    return redissonClient
+        .getCountDownLatch(createGlobalKey(key))
+        .trySetCountAsync(instanceCount)
+        .toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Void> countDownAsync(String key) {
+    return redissonClient
+        .getCountDownLatch(createGlobalKey(key))
+        .countDownAsync()
+        .toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> awaitCountDownLatchAsync(String key) {
+    String name = createGlobalKey(key);
+    RCountDownLatch latch = redissonClient.getCountDownLatch(name);
+    long deadline = System.nanoTime() + SECONDS.toNanos(timeToWait);
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    RTopic topic = redissonClient.getTopic(CHANNEL_PREFIX + name + "}", LongCodec.INSTANCE);
+    CompletableFuture<Integer> listener =
+        topic
+            .addListenerAsync(
+                Long.class, (channel, message) -> check(latch, deadline, result, false))
+            .toCompletableFuture();
+    listener.whenComplete(
+        (listenerId, e) -> {
+          if (e != null) {
+            result.completeExceptionally(e);
+          } else {
+            // Check once subscribed, in case the count reached zero before then
+            check(latch, deadline, result, true);
+          }
+        });
+    result.whenComplete((done, e) -> listener.thenAccept(topic::removeListenerAsync));
+    return result;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteCountDownLatchAsync(String key) {
+    return redissonClient
+        .getCountDownLatch(createGlobalKey(key))
+        .deleteAsync()
+        .toCompletableFuture();
+  }
+
+  private void check(
+      RCountDownLatch latch, long deadline, CompletableFuture<Boolean> result, boolean poll) {
+    if (result.isDone()) {
+      return;
+    }
+    latch
+        .getCountAsync()
+        .whenComplete(
+            (count, e) -> {
+              if (e != null) {
+                result.completeExceptionally(e);
+              } else if (count == 0) {
+                result.complete(true);
+              } else if (poll) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                  result.complete(false);
+                } else {
+                  POLLER.schedule(
+                      () -> check(latch, deadline, result, true),
+                      Math.min(remaining, MILLISECONDS.toNanos(AWAIT_POLL_MILLIS)),
+                      NANOSECONDS);
+                }
+              }
+            });
+  }
 }
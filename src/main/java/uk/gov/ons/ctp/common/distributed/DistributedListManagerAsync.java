@@ -0,0 +1,43 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link DistributedListManager}.
+ *
+ * <p>The blocking methods leave the list container locked by the calling thread until it is
+ * unlocked, which can't be done without a thread to hold the lock. Instead each of these methods
+ * locks the container, does its work and unlocks it again. A method which can't lock the container
+ * within the configured time fails with a {@link LockingException}.
+ *
+ * @param <T> The List&lt;type&gt; to be stored
+ */
+public interface DistributedListManagerAsync<T> {
+
+  /**
+   * Store the list against the given key in the distributed store.
+   *
+   * @param listKey the key to store this instances list against
+   * @param list the list to store
+   * @return future which completes when the list is stored
+   */
+  CompletableFuture<Void> saveListAsync(String listKey, List<T> list);
+
+  /**
+   * get the super list of the lists stored against the given key by all application instances, as
+   * findList does.
+   *
+   * @param listKey the key
+   * @return future of the super list for the key
+   */
+  CompletableFuture<List<T>> findListAsync(String listKey);
+
+  /**
+   * Remove from the store the instance list stored by key
+   *
+   * @param listKey the key
+   * @return future which completes when the list is removed
+   */
+  CompletableFuture<Void> deleteListAsync(String listKey);
+}
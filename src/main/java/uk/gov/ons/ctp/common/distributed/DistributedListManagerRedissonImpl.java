@@ -3,9 +3,19 @@ package uk.gov.ons.ctp.common.distributed;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
 import org.redisson.api.RBucket;
+import org.redisson.api.RFuture;
 import org.redisson.api.RKeys;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
@@ -15,15 +25,30 @@ import org.redisson.api.RedissonClient;
  * Redisson specific implementation of the DistributedListManager. Using this, application code does
  * not need to know about the redisson specifics, other than obtaining the client connection.
  *
+ * <p>Redisson has no async equivalent of the SCAN which findList uses to find the instance lists,
+ * and KEYS would block Redis while it searches the whole key space. So findListAsync runs the same
+ * SCAN on a small pool of threads shared by all the lists, and then reads the lists with async
+ * calls.
+ *
  * @param <T> our thing type
  */
 public class DistributedListManagerRedissonImpl<T> extends DistributedManagerBase
-    implements DistributedListManager<T> {
+    implements DistributedListManager<T>, DistributedListManagerAsync<T> {
 
   private static final Logger log =
       LoggerFactory.getLogger(DistributedListManagerRedissonImpl.class);
 
   private static final String LOCK_KEY = "lock";
+  private static final int SCAN_THREADS = 4;
+  private static final ExecutorService SCANNER =
+      Executors.newFixedThreadPool(
+          SCAN_THREADS,
+          r -> {
+            Thread thread = new Thread(r, "list-scan");
+            thread.setDaemon(true);
+            return thread;
+          });
+
   private Integer timeToWait;
   private Integer timeToLive;
   private RedissonClient redissonClient;
@@ -134,4 +159,120 @@ public class DistributedListManagerRedissonImpl<T> extends DistributedManagerBas
     }
     log.with("lock_name", lockName).debug("Succeeded to relinquish lock");
   }
+
+  @Override
+  public CompletableFuture<Void> saveListAsync(String key, List<T> list) {
+    return withContainerLock(
+        () -> {
+          RBucket<List<T>> bucket = redissonClient.getBucket(createKey(key));
+          return bucket.setAsync(list, timeToLive, TimeUnit.SECONDS).toCompletableFuture();
+        });
+  }
+
+  @Override
+  public CompletableFuture<List<T>> findListAsync(String key) {
+    return withContainerLock(
+        () ->
+            CompletableFuture.supplyAsync(() -> findKeys(createAllInstancesKey(key)), SCANNER)
+                .thenCompose(this::getLists));
+  }
+
+  @Override
+  public CompletableFuture<Void> deleteListAsync(String key) {
+    return withContainerLock(
+        () -> {
+          RBucket<List<T>> bucket = redissonClient.getBucket(createKey(key));
+          return bucket.deleteAsync().toCompletableFuture().thenApply(deleted -> null);
+        });
+  }
+
+  /**
+   * Find the keys matching a pattern with SCAN, blocking until they have all been found.
+   *
+   * @param pattern the pattern of the keys.
+   * @return the matching keys.
+   */
+  private List<String> findKeys(String pattern) {
+    List<String> keys = new ArrayList<>();
+    redissonClient.getKeys().getKeysByPattern(pattern).forEach(keys::add);
+    return keys;
+  }
+
+  /**
+   * Get the contents of several lists in one batch.
+   *
+   * @param keys the keys of the lists.
+   * @return future of the contents of all the lists, in the order of the keys.
+   */
+  private CompletableFuture<List<T>> getLists(Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+    RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+    List<RFuture<List<T>>> lists = new ArrayList<>();
+    for (String key : keys) {
+      RFuture<List<T>> list = batch.<List<T>>getBucket(key).getAsync();
+      lists.add(list);
+    }
+    return batch
+        .executeAsync()
+        .toCompletableFuture()
+        .thenApply(
+            result -> {
+              List<T> allContents = new ArrayList<>();
+              for (RFuture<List<T>> list : lists) {
+                if (list.getNow() != null) {
+                  allContents.addAll(list.getNow());
+                }
+              }
+              return allContents;
+            });
+  }
+
+  /**
+   * Run an async operation while holding the container lock, which is owned by an async owner id
+   * rather than the calling thread, and released once the operation completes.
+   *
+   * @param <R> the result of the operation.
+   * @param operation starts the operation.
+   * @return future of the result, which fails with a LockingException if the lock wasn't obtained.
+   */
+  private <R> CompletableFuture<R> withContainerLock(Supplier<CompletableFuture<R>> operation) {
+    String lockName = createGlobalKey(LOCK_KEY);
+    RLock lock = redissonClient.getFairLock(lockName);
+    long ownerId = nextAsyncOwnerId();
+    return lock.tryLockAsync(timeToWait, timeToLive, TimeUnit.SECONDS, ownerId)
+        .toCompletableFuture()
+        .thenCompose(
+            locked -> {
+              if (!locked) {
+                String msg = String.format("Failed to obtain lock %s", lockName);
+                return CompletableFuture.failedFuture(new LockingException(msg));
+              }
+              CompletableFuture<R> result;
+              try {
+                result = operation.get();
+              } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+              }
+              return result
+                  .handle(
+                      (value, failure) ->
+                          lock.unlockAsync(ownerId)
+                              .toCompletableFuture()
+                              .handle(
+                                  (unlocked, unlockFailure) -> {
+                                    if (failure != null || unlockFailure != null) {
+                                      throw asCompletionException(
+                                          failure != null ? failure : unlockFailure);
+                                    }
+                                    return value;
+                                  }))
+                  .thenCompose(Function.identity());
+            });
+  }
+
+  private static CompletionException asCompletionException(Throwable t) {
+    return t instanceof CompletionException ? (CompletionException) t : new CompletionException(t);
+  }
 }
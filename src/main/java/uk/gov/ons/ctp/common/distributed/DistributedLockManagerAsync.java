@@ -0,0 +1,60 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link DistributedLockManager}, for callers which compose distributed
+ * operations rather than waiting for each on a request thread.
+ *
+ * <p>A blocking lock belongs to the thread which took it, but an async lock may be released on a
+ * different thread, so it belongs to an owner id instead. Get one from {@link #newOwnerId()} and
+ * pass it to both lockAsync and unlockAsync. Owner ids never match the id of a thread, so an async
+ * lock is never held by a thread using the blocking methods.
+ */
+public interface DistributedLockManagerAsync {
+
+  /**
+   * Create an owner id for async locks.
+   *
+   * @return an id which is unique within this instance.
+   */
+  static long newOwnerId() {
+    return DistributedManagerBase.nextAsyncOwnerId();
+  }
+
+  /**
+   * for the given named lock, lock it if it is free.
+   *
+   * @param key the name of the lock
+   * @param ownerId the owner of the lock
+   * @return future of true if locked
+   */
+  CompletableFuture<Boolean> lockAsync(String key, long ownerId);
+
+  /**
+   * acquires the lock if it is free within the given waiting time.
+   *
+   * @param key the name of the lock
+   * @param time the maximum time to wait for the lock, in seconds
+   * @param ownerId the owner of the lock
+   * @return future of true if locked
+   */
+  CompletableFuture<Boolean> trylockAsync(String key, long time, long ownerId);
+
+  /**
+   * unlock the given named lock, if indeed the lock manager originally locked it for the owner.
+   *
+   * @param key the lock name
+   * @param ownerId the owner of the lock
+   * @return future which completes when the lock is released, or immediately if it isn't held
+   */
+  CompletableFuture<Void> unlockAsync(String key, long ownerId);
+
+  /**
+   * find if the named lock is locked
+   *
+   * @param key the name of the lock
+   * @return future of true if the lock is held by anyone
+   */
+  CompletableFuture<Boolean> isLockedAsync(String key);
+}
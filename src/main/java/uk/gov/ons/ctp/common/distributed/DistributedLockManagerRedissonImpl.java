@@ -1,22 +1,24 @@
 package uk.gov.ons.ctp.common.distributed;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 
 /** Distributed Lock Manager for Redisson */
 public class DistributedLockManagerRedissonImpl extends DistributedManagerBase
-    implements DistributedLockManager {
+    implements DistributedLockManager, DistributedLockManagerAsync {
 
   private Integer timeToLive;
   private RedissonClient redissonClient;
   // this is the managers list of locks it has created and that have not been
   // deleted from redis
   // each entry in this set is the raw key, ie not the 'decorated' key
+  // it is a concurrent set so that it can be iterated without holding a monitor while calling redis
   private Set<String> locks;
 
   /**
@@ -31,7 +33,7 @@ public class DistributedLockManagerRedissonImpl extends DistributedManagerBase
   public DistributedLockManagerRedissonImpl(
       String keyRoot, RedissonClient redissonClient, Integer timeToLive) {
     super(keyRoot);
-    this.locks = Collections.synchronizedSet(new TreeSet<String>());
+    this.locks = new ConcurrentSkipListSet<>();
     this.timeToLive = timeToLive;
     this.redissonClient = redissonClient;
   }
@@ -87,18 +89,61 @@ public class DistributedLockManagerRedissonImpl extends DistributedManagerBase
 
   @Override
   public void unlockInstanceLocks() {
-
-    synchronized (locks) {
-      Iterator<String> i = locks.iterator(); // Must be in synchronized block of
-      // code
-      while (i.hasNext()) {
-        String key = i.next();
-        RLock lock = redissonClient.getFairLock(createGlobalKey(key));
-        if (lock != null) {
-          lock.forceUnlock();
-          i.remove();
-        }
+    Iterator<String> i = locks.iterator();
+    while (i.hasNext()) {
+      String key = i.next();
+      RLock lock = redissonClient.getFairLock(createGlobalKey(key));
+      if (lock != null) {
+        lock.forceUnlock();
+        i.remove();
       }
     }
   }
+
+  @Override
+  public CompletableFuture<Boolean> isLockedAsync(String key) {
+    // A lock is held while its key exists, which is how isLocked tells
+    return redissonClient.getFairLock(createGlobalKey(key)).isExistsAsync().toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> lockAsync(String key, long ownerId) {
+    return trylockAsync(key, 0, ownerId);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> trylockAsync(String key, long time, long ownerId) {
+    // The lease sets the time to live in the same call that takes the lock
+    RLock lock = redissonClient.getFairLock(createGlobalKey(key));
+    return lock.tryLockAsync(time, timeToLive, TimeUnit.SECONDS, ownerId)
+        .toCompletableFuture()
+        .thenApply(
+            locked -> {
+              if (locked) {
+                locks.add(key);
+              }
+              return locked;
+            });
+  }
+
+  @Override
+  public CompletableFuture<Void> unlockAsync(String key, long ownerId) {
+    if (!locks.contains(key)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    RLock lock = redissonClient.getFairLock(createGlobalKey(key));
+    return lock.unlockAsync(ownerId)
+        .toCompletableFuture()
+        .handle(
+            (result, e) -> {
+              // A lock which isn't held by the owner is left alone, as unlock leaves it
+              Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+              if (cause == null) {
+                locks.remove(key);
+              } else if (!(cause instanceof IllegalMonitorStateException)) {
+                throw new CompletionException(cause);
+              }
+              return null;
+            });
+  }
 }
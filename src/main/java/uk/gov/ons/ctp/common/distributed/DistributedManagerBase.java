@@ -1,9 +1,13 @@
 package uk.gov.ons.ctp.common.distributed;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Base for Distributed Manager */
 public abstract class DistributedManagerBase {
+  // Negative, so that they never match the id of a thread
+  private static final AtomicLong ASYNC_OWNER_IDS = new AtomicLong();
+
   protected String keyRoot;
   protected String uuid;
 
@@ -46,4 +50,13 @@ public abstract class DistributedManagerBase {
   protected String createAllInstancesKey(String key) {
     return String.format("%s:*:%s", keyRoot, key);
   }
+
+  /**
+   * Creates an id to own locks taken by async methods, in place of a thread id
+   *
+   * @return the owner id
+   */
+  static long nextAsyncOwnerId() {
+    return ASYNC_OWNER_IDS.decrementAndGet();
+  }
 }
@@ -0,0 +1,54 @@
+package uk.gov.ons.ctp.common.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits hedged requests to a proportion of the overall traffic.
+ *
+ * <p>Every request earns a fraction of a token and every hedge spends a whole one, so over time the
+ * number of hedges can't exceed the configured percentage of requests. Unspent tokens are capped,
+ * which allows a short burst of hedges after a quiet period but stops a long quiet period being
+ * followed by a flood of extra load.
+ */
+public class HedgeBudget {
+  private static final long TOKEN = 1000;
+
+  private final long earnedPerRequest;
+  private final long maxBalance;
+  private final AtomicLong balance = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param maxHedgePercent the maximum number of hedges as a percentage of requests.
+   * @param maxBurst the maximum number of hedges that can be saved up.
+   */
+  public HedgeBudget(int maxHedgePercent, int maxBurst) {
+    this.earnedPerRequest = TOKEN * Math.max(maxHedgePercent, 0) / 100;
+    this.maxBalance = TOKEN * Math.max(maxBurst, 1);
+  }
+
+  /** Record that a request has been made, which earns part of a token. */
+  public void recordRequest() {
+    if (earnedPerRequest > 0) {
+      balance.accumulateAndGet(
+          earnedPerRequest, (current, earned) -> Math.min(current + earned, maxBalance));
+    }
+  }
+
+  /**
+   * Spend a token on a hedge, if there is one available.
+   *
+   * @return true if the hedge is within budget.
+   */
+  public boolean tryAcquire() {
+    long current;
+    do {
+      current = balance.get();
+      if (current < TOKEN) {
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - TOKEN));
+    return true;
+  }
+}
@@ -0,0 +1,153 @@
+package uk.gov.ons.ctp.common.hedge;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuts tail latency by hedging calls to an idempotent operation.
+ *
+ * <p>The call is started on the executor, and if it hasn't completed by the time the tracked
+ * percentile of recent latencies has elapsed, then an identical hedge call is started. The first
+ * call to succeed provides the result. The other call isn't interrupted, as that would fail it
+ * noisily in the middle of its read, but is left to finish and its result is discarded. Callers
+ * which can stop a call cleanly, such as by aborting its request, do so themselves. If both calls
+ * fail then the failure of the last one is thrown.
+ *
+ * <p>Hedges are only issued while they are within the {@link HedgeBudget}, and not until enough
+ * latencies have been recorded to produce a percentile. With a percentile of 0 the hedge is issued
+ * after the minimum delay instead. If the executor can't accept the call then it is run on the
+ * calling thread without a hedge.
+ */
+public class Hedger {
+  private static final Logger log = LoggerFactory.getLogger(Hedger.class);
+
+  private static final int WINDOW_SIZE = 1000;
+  private static final int MIN_SAMPLES = 50;
+  private static final int MAX_BURST = 10;
+
+  private final ExecutorService executor;
+  private final LatencyTracker latencyTracker;
+  private final HedgeBudget budget;
+  private final long minDelayNanos;
+
+  /**
+   * Constructor
+   *
+   * @param executor runs the calls. It needs capacity for two threads per concurrent call.
+   * @param percentile the percentile of recent latencies after which to hedge, or 0 to hedge after
+   *     the minimum delay.
+   * @param minDelayMillis the minimum time to wait before hedging.
+   * @param maxHedgePercent the maximum number of hedges as a percentage of calls.
+   */
+  public Hedger(
+      ExecutorService executor, double percentile, long minDelayMillis, int maxHedgePercent) {
+    this.executor = executor;
+    this.latencyTracker =
+        percentile > 0 ? new LatencyTracker(percentile, WINDOW_SIZE, MIN_SAMPLES) : null;
+    this.budget = new HedgeBudget(maxHedgePercent, MAX_BURST);
+    this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+  }
+
+  /**
+   * Run the call, hedging it if it is slow.
+   *
+   * @param <T> the type returned by the call.
+   * @param call the idempotent operation to run.
+   * @return the result of the first call to succeed.
+   * @throws Exception the exception thrown by the call, if no call succeeded.
+   */
+  public <T> T call(Callable<T> call) throws Exception {
+    budget.recordRequest();
+
+    CompletableFuture<T> winner = new CompletableFuture<>();
+    AtomicInteger outstanding = new AtomicInteger(1);
+    Future<?> primary;
+    try {
+      primary = launch(call, winner, outstanding);
+    } catch (RejectedExecutionException e) {
+      return timed(call);
+    }
+
+    Future<?> hedge = null;
+    try {
+      long delayNanos = hedgeDelayNanos();
+      if (delayNanos < 0) {
+        return winner.get();
+      }
+      try {
+        return winner.get(delayNanos, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (!winner.isDone() && budget.tryAcquire()) {
+          if (log.isDebugEnabled()) {
+            log.with("delayMillis", TimeUnit.NANOSECONDS.toMillis(delayNanos))
+                .debug("Call is slow, issuing hedge");
+          }
+          outstanding.incrementAndGet();
+          try {
+            hedge = launch(call, winner, outstanding);
+          } catch (RejectedExecutionException ree) {
+            outstanding.decrementAndGet();
+          }
+        }
+        return winner.get();
+      }
+    } catch (ExecutionException e) {
+      throw rethrowable(e.getCause());
+    } finally {
+      primary.cancel(false);
+      if (hedge != null) {
+        hedge.cancel(false);
+      }
+    }
+  }
+
+  private long hedgeDelayNanos() {
+    if (latencyTracker == null) {
+      return minDelayNanos;
+    }
+    long percentileNanos = latencyTracker.getPercentileNanos();
+    return percentileNanos < 0 ? -1 : Math.max(percentileNanos, minDelayNanos);
+  }
+
+  private <T> Future<?> launch(
+      Callable<T> call, CompletableFuture<T> winner, AtomicInteger outstanding) {
+    return executor.submit(
+        () -> {
+          try {
+            winner.complete(timed(call));
+          } catch (Throwable t) {
+            if (outstanding.decrementAndGet() == 0) {
+              winner.completeExceptionally(t);
+            }
+          }
+        });
+  }
+
+  private <T> T timed(Callable<T> call) throws Exception {
+    long start = System.nanoTime();
+    T result = call.call();
+    if (latencyTracker != null) {
+      latencyTracker.record(System.nanoTime() - start);
+    }
+    return result;
+  }
+
+  private Exception rethrowable(Throwable t) {
+    if (t instanceof Exception) {
+      return (Exception) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new ExecutionException(t);
+  }
+}
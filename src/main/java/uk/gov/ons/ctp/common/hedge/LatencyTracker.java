@@ -0,0 +1,71 @@
+package uk.gov.ons.ctp.common.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a window of the most recent latencies of an operation, from which a percentile can be
+ * derived.
+ *
+ * <p>The percentile is recalculated at most once per refresh interval, so that reading it is cheap
+ * enough to do on every call. Samples are recorded without locking, so under heavy concurrency an
+ * occasional sample may be lost, which is acceptable for the purpose of estimating a percentile.
+ */
+public class LatencyTracker {
+  private final long[] samples;
+  private final int minSamples;
+  private final int refreshInterval;
+  private final double percentile;
+
+  private final AtomicLong count = new AtomicLong();
+  private volatile long calculatedAt = -1;
+  private volatile long cachedNanos = -1;
+
+  /**
+   * Constructor
+   *
+   * @param percentile the percentile to track, between 0 and 100.
+   * @param windowSize the number of most recent samples to consider.
+   * @param minSamples the number of samples needed before a percentile is available.
+   */
+  public LatencyTracker(double percentile, int windowSize, int minSamples) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100");
+    }
+    this.percentile = percentile;
+    this.samples = new long[windowSize];
+    this.minSamples = Math.min(Math.max(minSamples, 1), windowSize);
+    this.refreshInterval = Math.max(windowSize / 10, 1);
+  }
+
+  /**
+   * Record the latency of a completed operation.
+   *
+   * @param nanos the latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    long index = count.getAndIncrement();
+    samples[(int) (index % samples.length)] = nanos;
+  }
+
+  /**
+   * Get the tracked percentile of the recorded latencies.
+   *
+   * @return the percentile in nanoseconds, or -1 if too few samples have been recorded.
+   */
+  public long getPercentileNanos() {
+    long recorded = count.get();
+    if (recorded < minSamples) {
+      return -1;
+    }
+    if (calculatedAt < 0 || recorded - calculatedAt >= refreshInterval) {
+      int size = (int) Math.min(recorded, samples.length);
+      long[] window = Arrays.copyOf(samples, size);
+      Arrays.sort(window);
+      int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+      cachedNanos = window[Math.max(rank, 0)];
+      calculatedAt = recorded;
+    }
+    return cachedNanos;
+  }
+}
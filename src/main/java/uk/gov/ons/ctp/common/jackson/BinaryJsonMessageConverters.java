@@ -0,0 +1,51 @@
+package uk.gov.ons.ctp.common.jackson;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Message converters for the Smile and CBOR binary forms of JSON, which map objects in the same way
+ * as the {@link CustomObjectMapper}.
+ *
+ * <p>The jackson-dataformat-smile and jackson-dataformat-cbor dependencies are optional, so a
+ * service only answers in a binary format if it declares the dependency. Spring MVC then registers
+ * its own converter for the format, which doesn't use the CustomObjectMapper, so the service should
+ * replace it with {@link #replaceDefaults}, for example in {@code
+ * WebMvcConfigurer.extendMessageConverters}. RestClient calls configured with the format are then
+ * answered in it, and other callers still get JSON.
+ */
+public class BinaryJsonMessageConverters {
+
+  private BinaryJsonMessageConverters() {}
+
+  /**
+   * Replace the Smile and CBOR converters that Spring registers by default with these ones. Only
+   * the formats which already have a converter are replaced, so only their dependencies are needed.
+   *
+   * @param converters the converters to update.
+   */
+  public static void replaceDefaults(List<HttpMessageConverter<?>> converters) {
+    converters.replaceAll(
+        converter -> {
+          if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+            return smile();
+          }
+          if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+            return cbor();
+          }
+          return converter;
+        });
+  }
+
+  public static MappingJackson2SmileHttpMessageConverter smile() {
+    return new MappingJackson2SmileHttpMessageConverter(new CustomObjectMapper(new SmileFactory()));
+  }
+
+  public static MappingJackson2CborHttpMessageConverter cbor() {
+    return new MappingJackson2CborHttpMessageConverter(new CustomObjectMapper(new CBORFactory()));
+  }
+}
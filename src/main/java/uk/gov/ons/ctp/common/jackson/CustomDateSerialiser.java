@@ -5,29 +5,25 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.TimeZone;
 import uk.gov.ons.ctp.common.time.DateTimeUtil;
 
 /** This class serialises dates to a standard application date format. */
 public class CustomDateSerialiser extends JsonSerializer<Date> {
 
-  private SimpleDateFormat dateFormatter;
+  // Thread safe, so all threads can share it without locking
+  private DateTimeFormatter dateFormatter;
 
   public CustomDateSerialiser() {
-    dateFormatter = new SimpleDateFormat(DateTimeUtil.DATE_FORMAT_IN_JSON);
-    dateFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+    dateFormatter =
+        DateTimeFormatter.ofPattern(DateTimeUtil.DATE_FORMAT_IN_JSON).withZone(ZoneOffset.UTC);
   }
 
   @Override
   public void serialize(Date value, JsonGenerator jsonGenerator, SerializerProvider provider)
       throws IOException, JsonProcessingException {
-
-    // Note that all threads are using the same formatter, which needs synchronisation as it is not
-    // thread safe.
-    synchronized (dateFormatter) {
-      jsonGenerator.writeString(dateFormatter.format(value));
-    }
+    jsonGenerator.writeString(dateFormatter.format(value.toInstant()));
   }
 }
@@ -1,5 +1,6 @@
 package uk.gov.ons.ctp.common.jackson;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -13,6 +14,16 @@ public class CustomObjectMapper extends ObjectMapper {
 
   /** Custom Object Mapper Constructor */
   public CustomObjectMapper() {
+    this(null);
+  }
+
+  /**
+   * Custom Object Mapper Constructor for other data formats, such as Smile or CBOR
+   *
+   * @param jsonFactory factory for the data format, or null for JSON
+   */
+  public CustomObjectMapper(JsonFactory jsonFactory) {
+    super(jsonFactory);
     this.registerModule(new JavaTimeModule());
     this.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     this.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
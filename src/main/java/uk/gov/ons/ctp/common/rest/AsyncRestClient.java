@@ -0,0 +1,514 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+
+/**
+ * A non-blocking sibling of {@link RestClient}, with the same methods but returning a {@link
+ * CompletableFuture} for each call, so that several calls to other services can be in flight at
+ * once without holding a thread for each of them.
+ *
+ * <p>Requests are sent with the JDK {@link HttpClient}, and bodies are converted with Jackson in
+ * the same way as the RestTemplate behind {@link RestClient} converts them. A failed call completes
+ * its future exceptionally with a {@link ResponseStatusException}, using the same error mapping and
+ * with the same cause as the equivalent {@link RestClient} failure. Note that {@link
+ * CompletableFuture#join()} wraps this in a {@link CompletionException}.
+ */
+public class AsyncRestClient {
+  private static final Logger log = LoggerFactory.getLogger(AsyncRestClient.class);
+
+  private static Map<HttpStatus, HttpStatus> defaultBareBonesErrorMapping;
+
+  static {
+    defaultBareBonesErrorMapping = new HashMap<HttpStatus, HttpStatus>();
+    defaultBareBonesErrorMapping.put(HttpStatus.OK, HttpStatus.OK);
+    defaultBareBonesErrorMapping.put(HttpStatus.NOT_FOUND, HttpStatus.NOT_FOUND);
+  }
+
+  private RestClientConfig config;
+  private Map<HttpStatus, HttpStatus> httpErrorMapping;
+  private HttpStatus httpDefaultStatus;
+
+  private HttpClient httpClient;
+  private ObjectMapper objectMapper;
+
+  /**
+   * Construct with no details of the server - will use the default RestClientConfig provides
+   *
+   * @throws CTPException if the client could not be created.
+   */
+  public AsyncRestClient() throws CTPException {
+    this(new RestClientConfig());
+  }
+
+  /**
+   * Constructor which uses no error code mappings.
+   *
+   * @param clientConfig contains data on how to connect to another service.
+   * @throws CTPException if the client could not be created.
+   */
+  public AsyncRestClient(RestClientConfig clientConfig) throws CTPException {
+    this(clientConfig, defaultBareBonesErrorMapping, HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  /**
+   * Construct with the core details of the server
+   *
+   * @param clientConfig contains data on how to connect to another service.
+   * @param httpErrorMapping is a table which determines which error code this service should
+   *     respond with following an http error from the delegated service.
+   * @param httpDefaultStatus if the called service returns a http code which is not in the mapping
+   *     table then this value will be used.
+   * @throws CTPException if the client could not be created.
+   */
+  public AsyncRestClient(
+      RestClientConfig clientConfig,
+      Map<HttpStatus, HttpStatus> httpErrorMapping,
+      HttpStatus httpDefaultStatus)
+      throws CTPException {
+    this.config = clientConfig;
+    this.httpErrorMapping = httpErrorMapping;
+    this.httpDefaultStatus = httpDefaultStatus;
+    this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    init();
+  }
+
+  private void init() throws CTPException {
+    SSLParameters sslParameters = new SSLParameters();
+    sslParameters.setProtocols(new String[] {"TLSv1", "TLSv1.1", "TLSv1.2"});
+
+    HttpClient.Builder builder;
+    try {
+      builder =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_1_1)
+              .sslContext(SSLContext.getDefault())
+              .sslParameters(sslParameters);
+    } catch (NoSuchAlgorithmException e) {
+      log.error(e, "Failed to create SSL context");
+      throw new CTPException(Fault.SYSTEM_ERROR, e);
+    }
+
+    // As for RestClient, '0' means wait for an infinite amount of time
+    if (config.getConnectTimeoutMillis() > 0) {
+      builder.connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()));
+    }
+    httpClient = builder.build();
+  }
+
+  /**
+   * Use to perform a GET that retrieves a single resource
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the class type of the resource to be obtained
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return a future for the type you asked for
+   */
+  public <T> CompletableFuture<T> getResource(String path, Class<T> clazz, Object... pathParams) {
+    return doHttpOperation(HttpMethod.GET, path, null, clazz, null, null, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that retrieves a single resource
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the class type of the resource to be obtained
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params keyed by string logically allows for
+   *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return a future for the type you asked for
+   */
+  public <T> CompletableFuture<T> getResource(
+      String path,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams) {
+    return doHttpOperation(
+        HttpMethod.GET, path, null, clazz, headerParams, queryParams, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that retrieves multiple instances of a resource
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the array class type of the resource, a List of which is to be obtained
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return a future for a list of the type you asked for
+   */
+  public <T> CompletableFuture<List<T>> getResources(
+      String path, Class<T[]> clazz, Object... pathParams) {
+    return getResources(path, clazz, null, null, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that retrieves multiple instances of a resource
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the array class type of the resource, a List of which is to be obtained
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params keyed by string logically allows for
+   *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return a future for a list of the type you asked for
+   */
+  public <T> CompletableFuture<List<T>> getResources(
+      String path,
+      Class<T[]> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams) {
+    return getResource(path, clazz, headerParams, queryParams, pathParams)
+        .thenApply(
+            responseArray ->
+                responseArray.length > 0 ? Arrays.asList(responseArray) : new ArrayList<T>());
+  }
+
+  /**
+   * used to post
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param <P> the type to be sent
+   * @param path the url path
+   * @param objToPost the object to be sent
+   * @param clazz the expected response object type
+   * @param pathParams var arg path params in {} placeholder order
+   * @return a future for the response object
+   */
+  public <T, P> CompletableFuture<T> postResource(
+      String path, P objToPost, Class<T> clazz, Object... pathParams) {
+    return postResource(path, objToPost, clazz, null, null, pathParams);
+  }
+
+  /**
+   * used to post
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param <P> the type to be sent
+   * @param path the url path
+   * @param objToPost the object to be sent
+   * @param clazz the expected response object type
+   * @param headerParams map of header params
+   * @param queryParams multi map of query params
+   * @param pathParams var arg path params in {} placeholder order
+   * @return a future for the response object
+   */
+  public <T, P> CompletableFuture<T> postResource(
+      String path,
+      P objToPost,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams) {
+    return doHttpOperation(
+        HttpMethod.POST, path, objToPost, clazz, headerParams, queryParams, pathParams);
+  }
+
+  /**
+   * used to put
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param <P> the type to be sent
+   * @param path the url path
+   * @param objToPut the object to be sent
+   * @param clazz the expected response object type
+   * @param pathParams var arg path params in {} placeholder order
+   * @return a future for the response object
+   */
+  public <T, P> CompletableFuture<T> putResource(
+      String path, P objToPut, Class<T> clazz, Object... pathParams) {
+    return putResource(path, objToPut, clazz, null, null, pathParams);
+  }
+
+  /**
+   * used to put
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param <P> the type to be sent
+   * @param path the url path
+   * @param objToPut the object to be sent
+   * @param clazz the expected response object type
+   * @param headerParams map of header params
+   * @param queryParams multi map of query params
+   * @param pathParams var arg path params in {} placeholder order
+   * @return a future for the response object
+   */
+  public <T, P> CompletableFuture<T> putResource(
+      String path,
+      P objToPut,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams) {
+    return doHttpOperation(
+        HttpMethod.PUT, path, objToPut, clazz, headerParams, queryParams, pathParams);
+  }
+
+  private <T, P> CompletableFuture<T> doHttpOperation(
+      HttpMethod method,
+      String path,
+      P objToSend,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams) {
+    if (log.isDebugEnabled()) {
+      log.debug("Enter doHttpOperation {} for path: {}", method.name(), path);
+    }
+
+    UriComponents uriComponents = createUriComponents(path, queryParams, pathParams);
+    HttpRequest request;
+    try {
+      request = createRequest(method, uriComponents, objToSend, headerParams);
+    } catch (IOException | IllegalArgumentException e) {
+      // Includes headers that the http client doesn't allow to be set, such as Host
+      log.with("path", path).with("methodName", method.name()).error(e, "Failed to create request");
+      return CompletableFuture.failedFuture(
+          new ResponseStatusException(
+              HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error"));
+    }
+
+    // Complete with the ResponseStatusException itself, rather than wrapped in a
+    // CompletionException
+    CompletableFuture<T> result = new CompletableFuture<>();
+    httpClient
+        .sendAsync(request, BodyHandlers.ofByteArray())
+        .whenComplete(
+            (response, failure) -> {
+              if (failure != null) {
+                Throwable cause =
+                    failure instanceof CompletionException ? failure.getCause() : failure;
+                log.with("path", path)
+                    .with("methodName", method.name())
+                    .error(cause, "request failed for the given path");
+                result.completeExceptionally(
+                    new ResponseStatusException(
+                        HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error"));
+                return;
+              }
+              try {
+                result.complete(handleResponse(method, path, response, clazz));
+              } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+              }
+            });
+    return result;
+  }
+
+  private <T> T handleResponse(
+      HttpMethod method, String path, HttpResponse<byte[]> response, Class<T> clazz) {
+    String errorMessage = "request failed for the given path";
+    HttpStatus status = HttpStatus.resolve(response.statusCode());
+    if (status == null) {
+      log.with("path", path)
+          .with("methodName", method.name())
+          .with("statusCode", response.statusCode())
+          .error(errorMessage);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error");
+    }
+
+    HttpHeaders headers = toHttpHeaders(response);
+    byte[] body = response.body();
+    if (status.isError()) {
+      HttpStatusCodeException e = createStatusCodeException(status, headers, body);
+      String responseBody = e.getResponseBodyAsString();
+      if (status == HttpStatus.NOT_FOUND) {
+        log.with("path", path)
+            .with("methodName", method.name())
+            .with("Status", status)
+            .with("ResponseBody", responseBody)
+            .warn("dealing with NOT_FOUND");
+      } else if (status == HttpStatus.TOO_MANY_REQUESTS) {
+        // Caller expected to handle this situation
+        log.info("Too many requests response on {} for path: {}", method.name(), path);
+      } else {
+        log.with("path", path)
+            .with("methodName", method.name())
+            .with("statusCode", status)
+            .with("responseBody", responseBody)
+            .error(errorMessage);
+      }
+      throw new ResponseStatusException(mapToExternalStatus(status), responseBody, e);
+    }
+
+    T responseObject;
+    try {
+      responseObject = readBody(body, headers, clazz);
+    } catch (IOException e) {
+      log.with("path", path).with("methodName", method.name()).error(e, errorMessage);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error");
+    }
+
+    if (responseObject == null) {
+      log.with("path", path)
+          .with("methodName", method.name())
+          .with("statusCode", status)
+          .error("Empty body returned for given path");
+      throw new ResponseStatusException(
+          mapToExternalStatus(status), "Internal processing error. No response.");
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("Exit doHttpOperation {} for path: {}", method.name(), path);
+    }
+
+    return responseObject;
+  }
+
+  private <P> HttpRequest createRequest(
+      HttpMethod method, UriComponents uriComponents, P objToSend, Map<String, String> headerParams)
+      throws IOException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(uriComponents.toUri());
+    if (config.getSocketTimeoutMillis() > 0) {
+      builder.timeout(Duration.ofMillis(config.getSocketTimeoutMillis()));
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    if (objToSend instanceof String) {
+      headers.set(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+    } else if (objToSend != null) {
+      headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    }
+    if (headerParams != null) {
+      for (Map.Entry<String, String> me : headerParams.entrySet()) {
+        headers.set(me.getKey(), me.getValue());
+      }
+    }
+    if (config.getUsername() != null && config.getPassword() != null) {
+      String auth = config.getUsername() + ":" + config.getPassword();
+      byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(StandardCharsets.US_ASCII));
+      headers.set(HttpHeaders.AUTHORIZATION, "Basic " + new String(encodedAuth));
+    }
+    headers.forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+
+    return builder.method(method.name(), createBodyPublisher(objToSend)).build();
+  }
+
+  private BodyPublisher createBodyPublisher(Object objToSend) throws IOException {
+    if (objToSend == null) {
+      return BodyPublishers.noBody();
+    }
+    if (objToSend instanceof String) {
+      return BodyPublishers.ofString((String) objToSend, StandardCharsets.UTF_8);
+    }
+    return BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(objToSend));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T readBody(byte[] body, HttpHeaders headers, Class<T> clazz) throws IOException {
+    if (body == null || body.length == 0) {
+      return null;
+    }
+    if (clazz == String.class) {
+      return (T) new String(body, charsetOf(headers));
+    }
+    JavaType javaType = objectMapper.constructType(clazz);
+    return objectMapper.readValue(body, javaType);
+  }
+
+  private HttpStatusCodeException createStatusCodeException(
+      HttpStatus status, HttpHeaders headers, byte[] body) {
+    Charset charset = charsetOf(headers);
+    if (status.is4xxClientError()) {
+      return HttpClientErrorException.create(
+          status, status.getReasonPhrase(), headers, body, charset);
+    }
+    return HttpServerErrorException.create(
+        status, status.getReasonPhrase(), headers, body, charset);
+  }
+
+  private HttpHeaders toHttpHeaders(HttpResponse<?> response) {
+    HttpHeaders headers = new HttpHeaders();
+    response.headers().map().forEach(headers::addAll);
+    return headers;
+  }
+
+  private Charset charsetOf(HttpHeaders headers) {
+    MediaType contentType = headers.getContentType();
+    if (contentType != null && contentType.getCharset() != null) {
+      return contentType.getCharset();
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * used to create the URiComponents needed to call an endpoint
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param queryParams multi map of query params keyed by string logically allows for
+   *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the components
+   */
+  private UriComponents createUriComponents(
+      String path, MultiValueMap<String, String> queryParams, Object... pathParams) {
+    return UriComponentsBuilder.newInstance()
+        .scheme(config.getScheme())
+        .host(config.getHost())
+        .port(config.getPort())
+        .path(path)
+        .queryParams(queryParams)
+        .buildAndExpand(pathParams)
+        .encode();
+  }
+
+  /**
+   * This method converts a http code from a failed invocation of another service to a http status
+   * that this service should fail with.
+   *
+   * @param originalHttpStatus is the status returned by the other service.
+   * @return the status that this service should fail with.
+   */
+  private HttpStatus mapToExternalStatus(HttpStatus originalHttpStatus) {
+    if (httpErrorMapping.containsKey(originalHttpStatus)) {
+      return httpErrorMapping.get(originalHttpStatus);
+    }
+
+    return httpDefaultStatus;
+  }
+}
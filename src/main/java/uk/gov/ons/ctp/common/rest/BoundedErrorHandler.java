@@ -0,0 +1,36 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.io.IOException;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+
+/**
+ * Error handler which reads no more than the start of an error response body.
+ *
+ * <p>The body is held by the exception thrown for the response, then decoded for the exception
+ * message, the logs and the reason the {@link RestClient} fails with. A failing server may return
+ * large error pages, so reading only the start of them bounds the memory and CPU spent on each
+ * failure. The rest of the body is discarded when the response is closed.
+ */
+class BoundedErrorHandler extends DefaultResponseErrorHandler {
+  private final int maxBytes;
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes the most of each error response body to read.
+   */
+  BoundedErrorHandler(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  protected byte[] getResponseBody(ClientHttpResponse response) {
+    try {
+      return response.getBody().readNBytes(maxBytes);
+    } catch (IOException e) {
+      // ignore, as the superclass does
+    }
+    return new byte[0];
+  }
+}
@@ -0,0 +1,22 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.util.Map;
+import lombok.Data;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The outcome of fetching a batch of resources by ID with {@link RestClient#getResourcesByIds}.
+ * Every ID appears in exactly one of the maps, which are in the order the IDs were given.
+ *
+ * @param <K> the type of the IDs.
+ * @param <T> the type of the resources.
+ */
+@Data
+public class BulkResult<K, T> {
+  private final Map<K, T> results;
+  private final Map<K, ResponseStatusException> failures;
+
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+}
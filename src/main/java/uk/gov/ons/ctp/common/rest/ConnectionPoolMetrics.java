@@ -0,0 +1,142 @@
+package uk.gov.ons.ctp.common.rest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Publishes gauges for the state of a {@link RestClient} connection pool.
+ *
+ * <p>The rest.client.pool.connections gauge is tagged with the state of the connections, one of
+ * leased, available, pending (requests waiting for a connection) or max, and with the route. The
+ * route tag is "all" for the pool as a whole. A pending count above zero means that the pool is
+ * exhausted and requests are queueing for connections.
+ *
+ * <p>Each gauge sums the pools of every client for the same host, so that a second client doesn't
+ * find the first client's gauge already registered. A pool stops being counted when it is
+ * unregistered, or once its client has been discarded, as the pools are held weakly.
+ */
+class ConnectionPoolMetrics {
+  static final String METRIC_NAME = "rest.client.pool.connections";
+  static final String ALL_ROUTES = "all";
+
+  private static final Map<MeterRegistry, Map<List<String>, Pools>> GAUGES = new WeakHashMap<>();
+
+  private ConnectionPoolMetrics() {}
+
+  /**
+   * Register the gauges for a pool.
+   *
+   * @param meterRegistry registry to publish the gauges to.
+   * @param connectionManager the pool.
+   * @param host the host the pool connects to.
+   * @param routes the routes to publish gauges for, as well as the pool as a whole.
+   */
+  static void register(
+      MeterRegistry meterRegistry,
+      PoolingHttpClientConnectionManager connectionManager,
+      String host,
+      HttpRoute... routes) {
+    registerStats(meterRegistry, connectionManager, host, ALL_ROUTES, m -> m.getTotalStats());
+    for (HttpRoute route : routes) {
+      registerStats(
+          meterRegistry,
+          connectionManager,
+          host,
+          route.getTargetHost().toURI(),
+          m -> m.getStats(route));
+    }
+  }
+
+  /**
+   * Stop counting a pool in the gauges it was registered with.
+   *
+   * @param meterRegistry registry the gauges were published to.
+   * @param connectionManager the pool.
+   */
+  static void unregister(
+      MeterRegistry meterRegistry, PoolingHttpClientConnectionManager connectionManager) {
+    List<Pools> registered;
+    synchronized (GAUGES) {
+      registered = List.copyOf(GAUGES.getOrDefault(meterRegistry, Map.of()).values());
+    }
+    registered.forEach(pools -> pools.remove(connectionManager));
+  }
+
+  private static void registerStats(
+      MeterRegistry meterRegistry,
+      PoolingHttpClientConnectionManager connectionManager,
+      String host,
+      String route,
+      Function<PoolingHttpClientConnectionManager, PoolStats> stats) {
+    gauge(meterRegistry, connectionManager, host, route, "leased", m -> stats.apply(m).getLeased());
+    gauge(
+        meterRegistry,
+        connectionManager,
+        host,
+        route,
+        "available",
+        m -> stats.apply(m).getAvailable());
+    gauge(
+        meterRegistry, connectionManager, host, route, "pending", m -> stats.apply(m).getPending());
+    gauge(meterRegistry, connectionManager, host, route, "max", m -> stats.apply(m).getMax());
+  }
+
+  private static void gauge(
+      MeterRegistry meterRegistry,
+      PoolingHttpClientConnectionManager connectionManager,
+      String host,
+      String route,
+      String state,
+      ToIntFunction<PoolingHttpClientConnectionManager> value) {
+    Pools pools;
+    synchronized (GAUGES) {
+      pools =
+          GAUGES
+              .computeIfAbsent(meterRegistry, r -> new HashMap<>())
+              .computeIfAbsent(
+                  List.of(host, route, state),
+                  k -> {
+                    Pools p = new Pools();
+                    Gauge.builder(METRIC_NAME, p, Pools::sum)
+                        .description("Connections in the RestClient connection pool")
+                        .tag("host", host)
+                        .tag("route", route)
+                        .tag("state", state)
+                        .strongReference(true)
+                        .register(meterRegistry);
+                    return p;
+                  });
+    }
+    pools.add(connectionManager, value);
+  }
+
+  /** The pools counted by one gauge, each with the function reading its part of the gauge. */
+  private static class Pools {
+    private final Map<
+            PoolingHttpClientConnectionManager, ToIntFunction<PoolingHttpClientConnectionManager>>
+        values = new WeakHashMap<>();
+
+    synchronized void add(
+        PoolingHttpClientConnectionManager connectionManager,
+        ToIntFunction<PoolingHttpClientConnectionManager> value) {
+      values.put(connectionManager, value);
+    }
+
+    synchronized void remove(PoolingHttpClientConnectionManager connectionManager) {
+      values.remove(connectionManager);
+    }
+
+    synchronized double sum() {
+      return values.entrySet().stream().mapToInt(e -> e.getValue().applyAsInt(e.getKey())).sum();
+    }
+  }
+}
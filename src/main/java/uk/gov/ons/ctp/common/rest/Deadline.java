@@ -0,0 +1,94 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which the work being done for a request must be over.
+ *
+ * <p>While a deadline is attached to a thread, {@link RestClient} calls made on that thread cap
+ * their timeouts at the time remaining, fail with a 504 once it has passed, and send the time
+ * remaining to the other service in the {@link #HEADER} header. The {@link DeadlineFilter} reads
+ * that header, so that a deadline set by the first service holds across all the calls made for it.
+ *
+ * <pre>
+ * try (Deadline.Scope scope = Deadline.after(2000).attach()) {
+ *   restClient.getResource(...);
+ * }
+ * </pre>
+ */
+public final class Deadline {
+  /** Header holding the milliseconds remaining, which is relative so clocks don't have to agree. */
+  public static final String HEADER = "X-Deadline-Millis";
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private final long expiresAtNanos;
+
+  private Deadline(long expiresAtNanos) {
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  /**
+   * Create a deadline.
+   *
+   * @param millis the time from now until the deadline.
+   * @return the deadline.
+   */
+  public static Deadline after(long millis) {
+    return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  /**
+   * The deadline attached to the current thread.
+   *
+   * @return the deadline, or null if there isn't one.
+   */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * The time remaining until the deadline.
+   *
+   * @return the milliseconds remaining, which is negative once the deadline has passed.
+   */
+  public long remainingMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return expiresAtNanos - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Attach the deadline to the current thread until the scope is closed. A sooner deadline already
+   * attached to the thread is kept, so that nested work can't extend the time it was given.
+   *
+   * @return the scope, which restores the previous deadline when it is closed.
+   */
+  public Scope attach() {
+    Deadline previous = CURRENT.get();
+    if (previous == null || expiresAtNanos - previous.expiresAtNanos < 0) {
+      CURRENT.set(this);
+    }
+    return new Scope(previous);
+  }
+
+  /** Restores the deadline that was attached before. */
+  public static final class Scope implements AutoCloseable {
+    private final Deadline previous;
+
+    private Scope(Deadline previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Attaches the deadline sent by the calling service in the {@link Deadline#HEADER} header to the
+ * thread handling the request, so that the {@link RestClient} calls made for it share the caller's
+ * time budget. Requests without the header have no deadline.
+ *
+ * <p>Services opt in by declaring the filter as a bean.
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+  private static final Logger log = LoggerFactory.getLogger(DeadlineFilter.class);
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String header = request.getHeader(Deadline.HEADER);
+    if (header == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    long remainingMillis;
+    try {
+      remainingMillis = Long.parseLong(header.trim());
+    } catch (NumberFormatException e) {
+      log.with("header", header).warn("Ignoring invalid deadline header");
+      filterChain.doFilter(request, response);
+      return;
+    }
+    try (Deadline.Scope scope = Deadline.after(remainingMillis).attach()) {
+      filterChain.doFilter(request, response);
+    }
+  }
+}
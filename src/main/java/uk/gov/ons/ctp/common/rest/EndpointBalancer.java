@@ -0,0 +1,147 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.springframework.util.StringUtils;
+import uk.gov.ons.ctp.common.rest.RestClientConfig.LoadBalancing;
+
+/**
+ * Chooses which of the configured endpoints each {@link RestClient} call goes to.
+ *
+ * <p>Endpoints are chosen in turn, or by the fewest calls in progress. An endpoint which fails
+ * several calls in a row is ejected, and gets no calls until the ejection time has passed. If every
+ * endpoint has been ejected then they are all used, as refusing all calls would be worse.
+ */
+class EndpointBalancer {
+  private static final Logger log = LoggerFactory.getLogger(EndpointBalancer.class);
+
+  private final List<Endpoint> endpoints;
+  private final LoadBalancing loadBalancing;
+  private final int ejectAfterFailures;
+  private final long ejectionMillis;
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * Constructor
+   *
+   * @param config the client config. The endpoints are used if set, otherwise the host and port.
+   */
+  EndpointBalancer(RestClientConfig config) {
+    List<Endpoint> configured = new ArrayList<>();
+    if (config.getEndpoints() == null || config.getEndpoints().isEmpty()) {
+      configured.add(new Endpoint(config.getScheme(), config.getHost(), config.getPort()));
+    } else {
+      for (String endpoint : config.getEndpoints()) {
+        String[] hostAndPort = endpoint.trim().split(":", 2);
+        configured.add(
+            new Endpoint(
+                config.getScheme(),
+                hostAndPort[0],
+                hostAndPort.length > 1 ? hostAndPort[1] : null));
+      }
+    }
+    this.endpoints = Collections.unmodifiableList(configured);
+    this.loadBalancing = config.getLoadBalancing();
+    this.ejectAfterFailures = config.getOutlierConsecutiveFailures();
+    this.ejectionMillis = config.getOutlierEjectionMillis();
+  }
+
+  List<Endpoint> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Choose the endpoint for a call, which must be released once the call is over.
+   *
+   * @return the endpoint to call.
+   */
+  Endpoint acquire() {
+    Endpoint chosen;
+    if (endpoints.size() == 1) {
+      chosen = endpoints.get(0);
+    } else {
+      int start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+      long now = System.currentTimeMillis();
+      chosen = choose(start, now, true);
+      if (chosen == null) {
+        chosen = choose(start, now, false);
+      }
+    }
+    chosen.outstanding.incrementAndGet();
+    return chosen;
+  }
+
+  /**
+   * Record the outcome of a call.
+   *
+   * @param endpoint the endpoint which was called.
+   * @param failed true if the endpoint failed to handle the call.
+   */
+  void release(Endpoint endpoint, boolean failed) {
+    endpoint.outstanding.decrementAndGet();
+    if (!failed) {
+      endpoint.consecutiveFailures.set(0);
+      return;
+    }
+    if (ejectAfterFailures > 0
+        && endpoints.size() > 1
+        && endpoint.consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+      endpoint.consecutiveFailures.set(0);
+      endpoint.ejectedUntil = System.currentTimeMillis() + ejectionMillis;
+      log.with("endpoint", endpoint.getBaseUrl())
+          .with("ejectionMillis", ejectionMillis)
+          .warn("Ejecting endpoint after consecutive failures");
+    }
+  }
+
+  /**
+   * Release an endpoint whose call was abandoned by the client, which says nothing about the
+   * endpoint.
+   *
+   * @param endpoint the endpoint which was called.
+   */
+  void abandon(Endpoint endpoint) {
+    endpoint.outstanding.decrementAndGet();
+  }
+
+  private Endpoint choose(int start, long now, boolean skipEjected) {
+    Endpoint chosen = null;
+    for (int i = 0; i < endpoints.size(); i++) {
+      Endpoint candidate = endpoints.get((start + i) % endpoints.size());
+      if (skipEjected && candidate.ejectedUntil > now) {
+        continue;
+      }
+      if (loadBalancing == LoadBalancing.ROUND_ROBIN) {
+        return candidate;
+      }
+      if (chosen == null || candidate.outstanding.get() < chosen.outstanding.get()) {
+        chosen = candidate;
+      }
+    }
+    return chosen;
+  }
+
+  /** An endpoint and the state of the calls to it. */
+  static class Endpoint {
+    @Getter private final String baseUrl;
+    @Getter private final HttpRoute route;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long ejectedUntil;
+
+    Endpoint(String scheme, String host, String port) {
+      boolean secure = "https".equalsIgnoreCase(scheme);
+      int portNumber = StringUtils.isEmpty(port) ? (secure ? 443 : 80) : Integer.parseInt(port);
+      this.baseUrl = scheme + "://" + host + (StringUtils.isEmpty(port) ? "" : ":" + port);
+      // Matches the route the client will use, so that its pool stats can be looked up
+      this.route = new HttpRoute(new HttpHost(host, portNumber, scheme), null, secure);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package uk.gov.ons.ctp.common.rest;
+
+import io.micrometer.core.instrument.Counter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Gzips request bodies which are at least a threshold size, and counts the bytes that saves.
+ *
+ * <p>Bodies which already have a Content-Encoding, or which don't get any smaller, are sent as they
+ * are.
+ */
+class GzipRequestInterceptor implements ClientHttpRequestInterceptor {
+  private final int thresholdBytes;
+  private final Counter bytesSaved;
+
+  /**
+   * Constructor
+   *
+   * @param thresholdBytes the size at which bodies are compressed.
+   * @param bytesSaved counts the difference between the original and compressed sizes.
+   */
+  GzipRequestInterceptor(int thresholdBytes, Counter bytesSaved) {
+    this.thresholdBytes = thresholdBytes;
+    this.bytesSaved = bytesSaved;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (body.length < thresholdBytes
+        || request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+      return execution.execute(request, body);
+    }
+
+    byte[] compressed = gzip(body);
+    if (compressed.length >= body.length) {
+      return execution.execute(request, body);
+    }
+    bytesSaved.increment(body.length - compressed.length);
+    request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+    request.getHeaders().setContentLength(compressed.length);
+    return execution.execute(request, compressed);
+  }
+
+  private static byte[] gzip(byte[] body) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(body);
+    }
+    return compressed.toByteArray();
+  }
+}
@@ -0,0 +1,124 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * An API path which has been parsed once so that it can be expanded cheaply on every call.
+ *
+ * <p>Expansion matches UriComponentsBuilder: the path params replace the "{}" place holders in
+ * order, and both the path and the query params are percent encoded.
+ */
+class PathTemplate {
+  static final String OTHER = "other";
+
+  private final String[] literals;
+  private final int variableCount;
+
+  private PathTemplate(List<String> literals) {
+    this.literals = literals.toArray(new String[0]);
+    this.variableCount = this.literals.length - 1;
+  }
+
+  /**
+   * Parse a path.
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @return the compiled template
+   */
+  static PathTemplate compile(String path) {
+    String sanitised = path.replaceAll("//+", "/");
+    if (!sanitised.isEmpty() && !sanitised.startsWith("/")) {
+      sanitised = "/" + sanitised;
+    }
+
+    List<String> literals = new ArrayList<>();
+    int start = 0;
+    int open;
+    while ((open = sanitised.indexOf('{', start)) >= 0) {
+      int close = closingBrace(sanitised, open);
+      if (close < 0) {
+        break;
+      }
+      literals.add(UriUtils.encodePath(sanitised.substring(start, open), StandardCharsets.UTF_8));
+      start = close + 1;
+    }
+    literals.add(UriUtils.encodePath(sanitised.substring(start), StandardCharsets.UTF_8));
+    return new PathTemplate(literals);
+  }
+
+  /**
+   * The name to group calls to a path by, in metrics and the resilience registries. A path without
+   * place holders may have been built by the caller with the params in it, which would make the
+   * number of names unbounded and could put personal data in them, so those paths are all named
+   * "other".
+   *
+   * @param path the API path being called.
+   * @return the path if it has place holders, otherwise "other".
+   */
+  static String name(String path) {
+    int open = path.indexOf('{');
+    return open >= 0 && closingBrace(path, open) >= 0 ? path : OTHER;
+  }
+
+  /**
+   * Expand the template into a URI string.
+   *
+   * @param baseUrl the scheme, host and port to prefix the path with.
+   * @param queryParams multi map of query params - can be null
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the encoded URI string
+   */
+  String expand(String baseUrl, MultiValueMap<String, String> queryParams, Object... pathParams) {
+    if (pathParams.length < variableCount) {
+      throw new IllegalArgumentException("Not enough variable values available to expand");
+    }
+
+    StringBuilder uri = new StringBuilder(baseUrl.length() + 64).append(baseUrl);
+    uri.append(literals[0]);
+    for (int i = 0; i < variableCount; i++) {
+      Object param = pathParams[i];
+      if (param != null) {
+        uri.append(UriUtils.encodePath(param.toString(), StandardCharsets.UTF_8));
+      }
+      uri.append(literals[i + 1]);
+    }
+
+    if (queryParams != null && !queryParams.isEmpty()) {
+      char separator = '?';
+      for (Map.Entry<String, List<String>> param : queryParams.entrySet()) {
+        String name = UriUtils.encodeQueryParam(param.getKey(), StandardCharsets.UTF_8);
+        if (param.getValue().isEmpty()) {
+          uri.append(separator).append(name);
+          separator = '&';
+        }
+        for (String value : param.getValue()) {
+          uri.append(separator).append(name);
+          if (value != null) {
+            uri.append('=').append(UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8));
+          }
+          separator = '&';
+        }
+      }
+    }
+    return uri.toString();
+  }
+
+  /** Find the end of a place holder, allowing for nested braces in a "{name:regex}" pattern. */
+  private static int closingBrace(String path, int open) {
+    int depth = 0;
+    for (int i = open; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '{') {
+        depth++;
+      } else if (c == '}' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
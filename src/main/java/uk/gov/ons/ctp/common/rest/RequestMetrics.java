@@ -0,0 +1,126 @@
+package uk.gov.ons.ctp.common.rest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Records the latency and failures of {@link RestClient} calls.
+ *
+ * <p>The rest.client.requests timer is tagged with the host, the method, the path template (not the
+ * expanded path, so that the number of series stays bounded) and the status class of the outcome.
+ * Paths without place holders are tagged "other", as the caller may have built them with the params
+ * in them. The status class is 2xx, 3xx, 4xx or 5xx when there was a response, io_error when there
+ * wasn't, and other for anything else. The time includes any retries. The timers are registered
+ * once and then looked up, and publish no histogram unless the registry is configured to.
+ *
+ * <p>The rest.client.errors counter is tagged with the status returned by the other service and the
+ * status the client mapped it to.
+ */
+class RequestMetrics {
+  static final String TIMER_NAME = "rest.client.requests";
+  static final String ERROR_COUNTER_NAME = "rest.client.errors";
+
+  private final MeterRegistry meterRegistry;
+  private final String host;
+  private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor
+   *
+   * @param meterRegistry registry to publish the metrics to.
+   * @param host the host being called, used to tag the metrics.
+   */
+  RequestMetrics(MeterRegistry meterRegistry, String host) {
+    this.meterRegistry = meterRegistry;
+    this.host = host;
+  }
+
+  /**
+   * Start timing a call.
+   *
+   * @return the sample to pass to {@link #stop}.
+   */
+  Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Stop timing a call.
+   *
+   * @param sample the sample returned by {@link #start}.
+   * @param method the method called.
+   * @param uriTemplate the path template called.
+   * @param result the result of the call, or null if it failed.
+   * @param failure the exception which failed the call, or null if it succeeded.
+   */
+  void stop(
+      Timer.Sample sample,
+      HttpMethod method,
+      String uriTemplate,
+      Object result,
+      Throwable failure) {
+    String status = failure == null ? statusClass(result) : statusClass(failure);
+    sample.stop(
+        timers.computeIfAbsent(
+            List.of(method.name(), uriTemplate, status),
+            key ->
+                Timer.builder(TIMER_NAME)
+                    .description("Calls made by the RestClient")
+                    .tag("host", host)
+                    .tag("method", method.name())
+                    .tag("uri", uriTemplate)
+                    .tag("status", status)
+                    .register(meterRegistry)));
+  }
+
+  /**
+   * Count a failed call.
+   *
+   * @param method the method called.
+   * @param uriTemplate the path template called.
+   * @param status the status returned by the other service, or null if there was no response.
+   * @param mappedStatus the status the failure was mapped to.
+   */
+  void countError(
+      HttpMethod method, String uriTemplate, HttpStatus status, HttpStatus mappedStatus) {
+    Counter.builder(ERROR_COUNTER_NAME)
+        .description("Failed calls made by the RestClient, by the status they were mapped to")
+        .tag("host", host)
+        .tag("method", method.name())
+        .tag("uri", uriTemplate)
+        .tag("status", status == null ? "none" : Integer.toString(status.value()))
+        .tag("mappedStatus", Integer.toString(mappedStatus.value()))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  private static String statusClass(Object result) {
+    if (result instanceof ResponseEntity) {
+      return statusClass(((ResponseEntity<?>) result).getStatusCodeValue());
+    }
+    return "2xx";
+  }
+
+  private static String statusClass(Throwable failure) {
+    if (failure instanceof HttpStatusCodeException) {
+      return statusClass(((HttpStatusCodeException) failure).getRawStatusCode());
+    }
+    if (failure instanceof ResourceAccessException) {
+      return "io_error";
+    }
+    return "other";
+  }
+
+  private static String statusClass(int status) {
+    return (status / 100) + "xx";
+  }
+}
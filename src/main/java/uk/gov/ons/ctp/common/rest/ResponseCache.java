@@ -0,0 +1,199 @@
+package uk.gov.ons.ctp.common.rest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Data;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Bounded in-memory cache of deserialised GET responses for the {@link RestClient}.
+ *
+ * <p>Responses are held according to their Cache-Control header. A response is fresh for its
+ * max-age, after which it is revalidated with If-None-Match if it had an ETag, or refetched if not.
+ * Responses marked no-store are never cached, and those marked no-cache are revalidated on every
+ * use. When the cache is full the least recently used response is discarded.
+ *
+ * <p>Cached objects are shared between callers, so they must not be modified. They are held as they
+ * were deserialised, rather than serialised again, so that a hit costs no more than a map lookup
+ * and returns exactly what the miss did.
+ */
+class ResponseCache {
+  private static final String METRIC_NAME = "rest.client.cache.requests";
+
+  private final int maxEntries;
+  private final Map<Key, Entry> entries;
+  // A lock rather than a monitor, so that virtual threads waiting for it don't pin their carrier
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter revalidations;
+
+  /**
+   * Constructor
+   *
+   * @param maxEntries the maximum number of responses to hold.
+   * @param host the host the responses are from, used to tag the metrics.
+   * @param meterRegistry registry for the hit, miss and revalidation counters.
+   */
+  ResponseCache(int maxEntries, String host, MeterRegistry meterRegistry) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.hits = counter(meterRegistry, host, "hit");
+    this.misses = counter(meterRegistry, host, "miss");
+    this.revalidations = counter(meterRegistry, host, "revalidated");
+  }
+
+  /**
+   * Get the cached response for a request.
+   *
+   * @param key identifies the request.
+   * @return the cached response, or null if there isn't one. If the response is fresh then it is
+   *     counted as a hit.
+   */
+  Entry get(Key key) {
+    Entry entry;
+    lock.lock();
+    try {
+      entry = entries.get(key);
+    } finally {
+      lock.unlock();
+    }
+    if (entry != null && entry.isFresh()) {
+      hits.increment();
+    }
+    return entry;
+  }
+
+  /**
+   * Record a full response to a request, caching it if its headers allow.
+   *
+   * @param key identifies the request.
+   * @param body the deserialised response.
+   * @param headers the response headers.
+   */
+  void put(Key key, Object body, HttpHeaders headers) {
+    misses.increment();
+    String cacheControl = headers.getCacheControl();
+    String eTag = headers.getETag();
+    long maxAgeMillis = maxAgeMillis(cacheControl);
+    boolean cacheable =
+        !hasDirective(cacheControl, "no-store") && (maxAgeMillis > 0 || eTag != null);
+
+    lock.lock();
+    try {
+      if (!cacheable) {
+        entries.remove(key);
+        return;
+      }
+      entries.put(key, new Entry(body, eTag, System.currentTimeMillis() + maxAgeMillis));
+      while (entries.size() > maxEntries) {
+        entries.remove(entries.keySet().iterator().next());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Record that a cached response was revalidated by a 304 (Not Modified) response.
+   *
+   * @param key identifies the request.
+   * @param entry the cached response, which is still valid.
+   * @param headers the headers of the 304 response, which may extend the freshness.
+   * @return the response to use from now on.
+   */
+  Entry revalidated(Key key, Entry entry, HttpHeaders headers) {
+    revalidations.increment();
+    String eTag = headers.getETag() == null ? entry.getETag() : headers.getETag();
+    Entry refreshed =
+        new Entry(
+            entry.getBody(),
+            eTag,
+            System.currentTimeMillis() + maxAgeMillis(headers.getCacheControl()));
+    lock.lock();
+    try {
+      entries.put(key, refreshed);
+    } finally {
+      lock.unlock();
+    }
+    return refreshed;
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static long maxAgeMillis(String cacheControl) {
+    if (cacheControl == null || hasDirective(cacheControl, "no-cache")) {
+      return 0;
+    }
+    for (String directive : cacheControl.split(",")) {
+      String[] parts = directive.trim().split("=", 2);
+      if (parts.length == 2 && parts[0].trim().equalsIgnoreCase("max-age")) {
+        try {
+          return TimeUnit.SECONDS.toMillis(Long.parseLong(parts[1].trim().replace("\"", "")));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 0;
+  }
+
+  private static boolean hasDirective(String cacheControl, String name) {
+    if (cacheControl == null) {
+      return false;
+    }
+    for (String directive : cacheControl.split(",")) {
+      if (directive.trim().equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Counter counter(MeterRegistry meterRegistry, String host, String result) {
+    return Counter.builder(METRIC_NAME)
+        .description("Cacheable GET requests made by the RestClient")
+        .tag("host", host)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  /** The request a cached response is for. */
+  @Data
+  static class Key {
+    private final String uri;
+    private final Map<String, String> headers;
+    private final Class<?> responseType;
+  }
+
+  /** A cached response. */
+  @Getter
+  static class Entry {
+    private final Object body;
+    private final String eTag;
+    private final long expiresAt;
+
+    Entry(Object body, String eTag, long expiresAt) {
+      this.body = body;
+      this.eTag = eTag;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isFresh() {
+      return System.currentTimeMillis() < expiresAt;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package uk.gov.ons.ctp.common.rest;
+
+import io.micrometer.core.instrument.Counter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.HttpClientBuilder;
+
+/**
+ * Counts the bytes saved by compressed responses.
+ *
+ * <p>HttpClient asks for gzip and deflate responses and decompresses them itself. These
+ * interceptors count the bytes read either side of the decompression, and once the body has been
+ * read and closed the difference is added to the counter.
+ */
+class ResponseCompressionMetrics {
+  private static final String COMPRESSED_COUNT = ResponseCompressionMetrics.class.getName();
+
+  private final Counter bytesSaved;
+
+  /**
+   * Constructor
+   *
+   * @param bytesSaved counts the difference between the decompressed and compressed sizes.
+   */
+  ResponseCompressionMetrics(Counter bytesSaved) {
+    this.bytesSaved = bytesSaved;
+  }
+
+  /**
+   * Add the interceptors to a client.
+   *
+   * @param httpClientBuilder builder for the client, which must have content compression enabled.
+   */
+  void addTo(HttpClientBuilder httpClientBuilder) {
+    httpClientBuilder.addInterceptorFirst(countCompressed());
+    httpClientBuilder.addInterceptorLast(countDecompressed());
+  }
+
+  /** Runs before decompression, so sees the body as it was sent. */
+  private HttpResponseInterceptor countCompressed() {
+    return (response, context) -> {
+      HttpEntity entity = response.getEntity();
+      if (entity == null || !isCompressed(entity.getContentEncoding())) {
+        return;
+      }
+      CountingEntity compressed = new CountingEntity(entity, null);
+      response.setEntity(compressed);
+      context.setAttribute(COMPRESSED_COUNT, compressed);
+    };
+  }
+
+  /** Runs after decompression, so sees the body as the caller reads it. */
+  private HttpResponseInterceptor countDecompressed() {
+    return (response, context) -> {
+      CountingEntity compressed = (CountingEntity) context.getAttribute(COMPRESSED_COUNT);
+      context.removeAttribute(COMPRESSED_COUNT);
+      if (compressed != null && response.getEntity() != null) {
+        response.setEntity(new CountingEntity(response.getEntity(), compressed));
+      }
+    };
+  }
+
+  private static boolean isCompressed(Header contentEncoding) {
+    if (contentEncoding == null) {
+      return false;
+    }
+    String value = contentEncoding.getValue().toLowerCase();
+    return value.contains("gzip") || value.contains("deflate");
+  }
+
+  /** Entity which counts the bytes read from its content. */
+  private class CountingEntity extends HttpEntityWrapper {
+    private final CountingEntity compressed;
+    private CountingInputStream content;
+
+    CountingEntity(HttpEntity wrappedEntity, CountingEntity compressed) {
+      super(wrappedEntity);
+      this.compressed = compressed;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      if (content == null) {
+        content = new CountingInputStream(super.getContent());
+      }
+      return content;
+    }
+
+    long getCount() {
+      return content == null ? 0 : content.count;
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+      private long count;
+      private boolean closed;
+
+      CountingInputStream(InputStream in) {
+        super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          count++;
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+          count += n;
+        }
+        return n;
+      }
+
+      @Override
+      public void close() throws IOException {
+        super.close();
+        if (!closed && compressed != null) {
+          long saved = count - compressed.getCount();
+          if (saved > 0) {
+            bytesSaved.increment(saved);
+          }
+        }
+        closed = true;
+      }
+    }
+  }
+}
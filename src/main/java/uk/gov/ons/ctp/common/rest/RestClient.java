@@ -1,24 +1,59 @@
 package uk.gov.ons.ctp.common.rest;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
-import java.nio.charset.Charset;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.net.ssl.SSLContext;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.http.HttpEntity;
@@ -27,34 +62,80 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.web.util.UriComponents;
-import org.springframework.web.util.UriComponentsBuilder;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.hedge.Hedger;
+import uk.gov.ons.ctp.common.rest.EndpointBalancer.Endpoint;
+import uk.gov.ons.ctp.common.util.VirtualThreads;
 
 /**
  * A convenience class that wraps the Spring RestTemplate and eases its use around the typing,
  * headers, path and query params
+ *
+ * <p>If the config sets responseCacheMaxEntries then GET responses are cached according to their
+ * Cache-Control and ETag headers. A cached response is deserialised once, and the same object is
+ * returned to every caller which hits the cache, so callers must treat the objects returned by
+ * getResource and getResources as immutable when the cache is enabled.
+ *
+ * <p>Calls made while a {@link Deadline} is attached to the thread have their timeouts capped at
+ * the time remaining, and fail with a 504 once it has passed.
+ *
+ * <p>The client holds a connection pool and threads, which are released by {@link #close()}.
  */
 @Slf4j
-public class RestClient {
+public class RestClient implements AutoCloseable {
 
   private RestClientConfig config;
 
   private RestTemplate restTemplate;
+  private RestTemplate streamingRestTemplate;
+  private ObjectMapper objectMapper;
+  private ResponseCache responseCache;
+  private RestClientResilience resilience;
+  private RetryTemplate retryTemplate;
+  private ExecutorService fanOutExecutor;
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+  private Hedger hedger;
+  private final Map<String, PathTemplate> pathTemplates = new ConcurrentHashMap<>();
+  private EndpointBalancer balancer;
+  private String authorization;
+  private HttpHeaders defaultHeaders;
+  private String accept;
+  private MediaType binaryMediaType;
+  private HttpHeaders binaryBodyHeaders;
+  private volatile boolean binaryBodiesAccepted;
+  private volatile boolean binaryBodiesRefused;
+  private MeterRegistry meterRegistry;
+  private RequestMetrics requestMetrics;
 
   private Map<HttpStatus, HttpStatus> httpErrorMapping;
   private HttpStatus httpDefaultStatus;
 
   private static Map<HttpStatus, HttpStatus> defaultBareBonesErrorMapping;
   private static final Logger logging = LoggerFactory.getLogger(RestClient.class);
+  private static final int MAX_PATH_TEMPLATES = 1000;
+  private static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+  private static final int TRANSFER_BUFFER_SIZE = 8192;
 
   static {
     defaultBareBonesErrorMapping = new HashMap<HttpStatus, HttpStatus>();
@@ -98,23 +179,88 @@ public class RestClient {
       Map<HttpStatus, HttpStatus> httpErrorMapping,
       HttpStatus httpDefaultStatus)
       throws CTPException {
+    this(clientConfig, httpErrorMapping, httpDefaultStatus, Metrics.globalRegistry);
+  }
+
+  /**
+   * Construct with the core details of the server and the registry to publish metrics to.
+   *
+   * @param clientConfig contains data on how to connect to another service.
+   * @param httpErrorMapping is a table which determines which error code this service should
+   *     respond with following an http error from the delegated service.
+   * @param httpDefaultStatus if the called service returns a http code which is not in the mapping
+   *     table then this value will be used.
+   * @param meterRegistry registry for the client metrics.
+   * @throws CTPException
+   */
+  public RestClient(
+      RestClientConfig clientConfig,
+      Map<HttpStatus, HttpStatus> httpErrorMapping,
+      HttpStatus httpDefaultStatus,
+      MeterRegistry meterRegistry)
+      throws CTPException {
     this.config = clientConfig;
     this.httpErrorMapping = httpErrorMapping;
     this.httpDefaultStatus = httpDefaultStatus;
+    this.meterRegistry = meterRegistry;
     init();
   }
 
+  /**
+   * Build the client from its config, releasing anything built by an earlier call.
+   *
+   * @throws CTPException if the connection pool can't be created.
+   */
   public void init() throws CTPException {
-    PoolingHttpClientConnectionManager connectionManager = createConnectionManager();
+    close();
+    balancer = new EndpointBalancer(config);
+    requestMetrics = new RequestMetrics(meterRegistry, config.getHost());
+
+    // The headers sent on every request are built once
+    if (config.getUsername() != null && config.getPassword() != null) {
+      String auth = config.getUsername() + ":" + config.getPassword();
+      byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(StandardCharsets.US_ASCII));
+      authorization = "Basic " + new String(encodedAuth, StandardCharsets.US_ASCII);
+    }
+    // Ask for the binary format if there is one, with JSON for servers which don't support it
+    binaryMediaType = binaryMediaType(config.getBinaryFormat());
+    accept =
+        binaryMediaType == null
+            ? MediaType.APPLICATION_JSON_VALUE
+            : binaryMediaType + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT, accept);
+    if (authorization != null) {
+      headers.set(HttpHeaders.AUTHORIZATION, authorization);
+    }
+    defaultHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+    if (binaryMediaType != null) {
+      HttpHeaders binaryHeaders = new HttpHeaders();
+      binaryHeaders.putAll(headers);
+      binaryHeaders.setContentType(binaryMediaType);
+      binaryBodyHeaders = HttpHeaders.readOnlyHttpHeaders(binaryHeaders);
+    }
+
+    connectionManager = createConnectionManager();
     connectionManager.setDefaultMaxPerRoute(config.getConnectionManagerDefaultMaxPerRoute());
     connectionManager.setMaxTotal(config.getConnectionManagerMaxTotal());
+    connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
     log.info(
         "Setting ConnectionManagerLimits for "
             + config.getHost()
             + " DefaultMaxPerRoute="
             + config.getConnectionManagerDefaultMaxPerRoute()
             + " MaxTotal="
-            + config.getConnectionManagerMaxTotal());
+            + config.getConnectionManagerMaxTotal()
+            + " TimeToLiveMillis="
+            + config.getConnectionTimeToLiveMillis()
+            + " IdleConnectionEvictMillis="
+            + config.getIdleConnectionEvictMillis());
+    ConnectionPoolMetrics.register(
+        meterRegistry,
+        connectionManager,
+        config.getHost(),
+        balancer.getEndpoints().stream().map(Endpoint::getRoute).toArray(HttpRoute[]::new));
 
     // Set http timeouts. Use '0' to disable and wait for an infinite amount of time
     RequestConfig requestConfig =
@@ -124,16 +270,107 @@ public class RestClient {
             .setSocketTimeout(config.getSocketTimeoutMillis())
             .build();
 
-    HttpClient httpClient =
+    HttpClientBuilder httpClientBuilder =
         HttpClientBuilder.create()
             .setDefaultRequestConfig(requestConfig)
-            .setConnectionManager(connectionManager)
-            .build();
+            .setConnectionManager(connectionManager);
+    if (config.getIdleConnectionEvictMillis() > 0) {
+      httpClientBuilder
+          .evictExpiredConnections()
+          .evictIdleConnections(config.getIdleConnectionEvictMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (config.getKeepAliveMillis() > 0) {
+      httpClientBuilder.setKeepAliveStrategy(createKeepAliveStrategy(config.getKeepAliveMillis()));
+    }
+    // HttpClient asks for compressed responses and decompresses them itself
+    new ResponseCompressionMetrics(compressionSavedBytes("response")).addTo(httpClientBuilder);
+    httpClient = httpClientBuilder.build();
 
+    // Requests made under a Deadline have their timeouts capped at the time remaining
     ClientHttpRequestFactory httpRequestFactory =
-        new HttpComponentsClientHttpRequestFactory(httpClient);
+        new RestClientRequestFactory(httpClient, requestConfig);
 
     restTemplate = new RestTemplate(httpRequestFactory);
+    // Uploads write straight to the connection, without the interceptors, which buffer the body
+    RestClientRequestFactory streamingRequestFactory =
+        new RestClientRequestFactory(httpClient, requestConfig);
+    streamingRequestFactory.setBufferRequestBody(false);
+    streamingRestTemplate = new RestTemplate(streamingRequestFactory);
+    if (config.getErrorBodyMaxBytes() > 0) {
+      BoundedErrorHandler errorHandler = new BoundedErrorHandler(config.getErrorBodyMaxBytes());
+      restTemplate.setErrorHandler(errorHandler);
+      streamingRestTemplate.setErrorHandler(errorHandler);
+    }
+    if (config.getRequestCompressionThresholdBytes() > 0) {
+      restTemplate
+          .getInterceptors()
+          .add(
+              new GzipRequestInterceptor(
+                  config.getRequestCompressionThresholdBytes(), compressionSavedBytes("request")));
+    }
+    objectMapper =
+        restTemplate.getMessageConverters().stream()
+            .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+            .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+            .findFirst()
+            .orElseGet(() -> Jackson2ObjectMapperBuilder.json().build());
+
+    // Fan out and hedge threads are only needed while calls are in flight. Platform threads are
+    // capped, and when they are all busy the calls run on the calling thread instead
+    fanOutExecutor =
+        VirtualThreads.newExecutor(
+            "rest-client-fanout", config.getConnectionManagerMaxTotal(), config.isVirtualThreads());
+    if (config.getHedgeDelayMillis() > 0 || config.getHedgePercentile() > 0) {
+      hedger =
+          new Hedger(
+              fanOutExecutor,
+              config.getHedgePercentile(),
+              config.getHedgeDelayMillis(),
+              config.getHedgeMaxPercent());
+    }
+
+    if (config.getRetryMaxAttempts() > 1) {
+      retryTemplate = new RetryTemplate();
+      retryTemplate.setRetryPolicy(
+          new RetryAfterRetryPolicy(
+              config.getRetryMaxAttempts(),
+              config.getRetryInitialBackoffMillis(),
+              config.getRetryMaxBackoffMillis(),
+              config.getRetryMultiplier(),
+              config.getRetryDeadlineMillis()));
+      retryTemplate.setBackOffPolicy(
+          new RetryAfterBackOffPolicy(new ThreadWaitSleeper(), meterRegistry, config.getHost()));
+    }
+
+    if (RestClientResilience.isEnabled(config)) {
+      resilience = new RestClientResilience(config);
+    }
+
+    if (config.getResponseCacheMaxEntries() > 0) {
+      responseCache =
+          new ResponseCache(config.getResponseCacheMaxEntries(), config.getHost(), meterRegistry);
+    }
+  }
+
+  /**
+   * Close the connection pool, which stops its idle connection evictor, and stop the fan out
+   * threads. The client can't make calls once closed, until init is called again.
+   */
+  @Override
+  public void close() {
+    if (fanOutExecutor != null) {
+      fanOutExecutor.shutdown();
+    }
+    if (connectionManager != null) {
+      ConnectionPoolMetrics.unregister(meterRegistry, connectionManager);
+    }
+    if (httpClient != null) {
+      try {
+        httpClient.close();
+      } catch (IOException e) {
+        logging.with("host", config.getHost()).warn("Failed to close the http client", e);
+      }
+    }
   }
 
   private PoolingHttpClientConnectionManager createConnectionManager() throws CTPException {
@@ -150,13 +387,73 @@ public class RestClient {
               .register("https", socketFactory)
               .build();
 
-      return new PoolingHttpClientConnectionManager(registry);
+      // A time to live of '0' or less means connections never expire
+      return new PoolingHttpClientConnectionManager(
+          registry,
+          null,
+          null,
+          null,
+          config.getConnectionTimeToLiveMillis(),
+          TimeUnit.MILLISECONDS);
     } catch (NoSuchAlgorithmException e) {
       log.error("Failed to create SSL connection factory", e);
       throw new CTPException(Fault.SYSTEM_ERROR, e);
     }
   }
 
+  /**
+   * The media type of the binary format, if the service has the Jackson dataformat it needs. The
+   * dataformats are optional dependencies, so that services which don't use them don't answer in
+   * them.
+   *
+   * @param binaryFormat the configured format.
+   * @return the media type, or null to only use JSON.
+   */
+  private static MediaType binaryMediaType(RestClientConfig.BinaryFormat binaryFormat) {
+    String factory;
+    MediaType mediaType;
+    switch (binaryFormat) {
+      case SMILE:
+        factory = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+        mediaType = MediaType.valueOf(SMILE_MEDIA_TYPE);
+        break;
+      case CBOR:
+        factory = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";
+        mediaType = MediaType.APPLICATION_CBOR;
+        break;
+      default:
+        return null;
+    }
+    if (!ClassUtils.isPresent(factory, RestClient.class.getClassLoader())) {
+      log.warn("{} needs {} on the classpath, so using JSON", binaryFormat, factory);
+      return null;
+    }
+    return mediaType;
+  }
+
+  private Counter compressionSavedBytes(String direction) {
+    return Counter.builder("rest.client.compression.saved.bytes")
+        .description("Bytes saved by compressing RestClient request and response bodies")
+        .baseUnit("bytes")
+        .tag("host", config.getHost())
+        .tag("direction", direction)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Create a keep alive strategy which uses the duration the server asks for, up to a maximum.
+   *
+   * @param maxKeepAliveMillis the maximum time to keep a connection alive.
+   * @return the strategy
+   */
+  private static ConnectionKeepAliveStrategy createKeepAliveStrategy(long maxKeepAliveMillis) {
+    return (response, context) -> {
+      long keepAlive =
+          DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return keepAlive > 0 ? Math.min(keepAlive, maxKeepAliveMillis) : maxKeepAliveMillis;
+    };
+  }
+
   /**
    * Allow access to the underlying template
    *
@@ -235,54 +532,58 @@ public class RestClient {
       log.debug("Enter doHttpOperation {} for path: {}", method.name(), path);
     }
 
+    String pathAndQuery = expandPath(path, queryParams, pathParams);
+
+    // Use a fresh cached response if there is one, otherwise revalidate any cached response
+    ResponseCache.Key cacheKey = null;
+    ResponseCache.Entry cached = null;
+    if (responseCache != null && method == HttpMethod.GET) {
+      cacheKey =
+          new ResponseCache.Key(
+              pathAndQuery, headerParams == null ? Map.of() : new HashMap<>(headerParams), clazz);
+      cached = responseCache.get(cacheKey);
+      if (cached != null && cached.isFresh()) {
+        return clazz.cast(cached.getBody());
+      }
+      if (cached != null && cached.getETag() != null) {
+        headerParams = headerParams == null ? new HashMap<>() : new HashMap<>(headerParams);
+        headerParams.put(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+      }
+    }
+
     // Issue http request to other service
     HttpEntity<P> httpEntity = createHttpEntity(objToSend, headerParams);
-    UriComponents uriComponents = createUriComponents(path, queryParams, pathParams);
     ResponseEntity<T> response;
-    String errorMessage = "request failed for the given path";
     try {
-      response = restTemplate.exchange(uriComponents.toUri(), method, httpEntity, clazz);
-    } catch (HttpStatusCodeException e) {
-      // Failure detected. For 4xx and 5xx status codes
-      if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-        errorMessage = "dealing with NOT_FOUND";
-        logging
-            .with("path", path)
-            .with("methodName", method.name())
-            .with("uriComponents", uriComponents)
-            .with("Status", e.getStatusCode())
-            .with("ResponseBody", e.getResponseBodyAsString())
-            .warn(errorMessage);
-      } else if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-        // Caller expected to handle this situation
-        log.info("Too many requests response on {} for path: {}", method.name(), path);
-      } else {
-        logging
-            .with("path", path)
-            .with("methodName", method.name())
-            .with("uriComponents", uriComponents)
-            .with("statusCode", e.getStatusCode())
-            .with("responseBody", e.getResponseBodyAsString())
-            .error(errorMessage);
-        if (log.isDebugEnabled()) {
-          logging.debug(errorMessage, e);
-        }
-      }
-      throw new ResponseStatusException(
-          mapToExternalStatus(e.getStatusCode()), e.getResponseBodyAsString(), e);
+      response = exchange(method, path, pathAndQuery, httpEntity, clazz);
     } catch (RestClientException e) {
-      logging.with("path", path).with("methodName", method.name()).error(errorMessage, e);
-      throw new ResponseStatusException(
-          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error");
+      if (!isBinaryBodyRefused(httpEntity, e)) {
+        throw handleFailure(method, path, e);
+      }
+      // Send the body again as JSON, which the server must accept as it did before
+      log.info("Server did not accept {} body, reverting to JSON", binaryMediaType);
+      binaryBodiesRefused = true;
+      binaryBodiesAccepted = false;
+      try {
+        response =
+            exchange(method, path, pathAndQuery, createHttpEntity(objToSend, headerParams), clazz);
+      } catch (RestClientException retryFailure) {
+        throw handleFailure(method, path, retryFailure);
+      }
+    }
+    noteResponseContentType(response.getHeaders().getContentType());
+
+    if (cached != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+      cached = responseCache.revalidated(cacheKey, cached, response.getHeaders());
+      return clazz.cast(cached.getBody());
     }
 
     T responseObject = response.getBody();
     if (responseObject == null) {
-      errorMessage = "Empty body returned for given path";
+      String errorMessage = "Empty body returned for given path";
       logging
           .with("path", path)
           .with("methodName", method.name())
-          .with("uriComponents", uriComponents)
           .with("statusCode", response.getStatusCode())
           .with("responseBody", response.getBody())
           .error(errorMessage);
@@ -290,6 +591,10 @@ public class RestClient {
           mapToExternalStatus(response.getStatusCode()), "Internal processing error. No response.");
     }
 
+    if (cacheKey != null) {
+      responseCache.put(cacheKey, responseObject, response.getHeaders());
+    }
+
     if (log.isDebugEnabled()) {
       log.debug("Exit doHttpOperation {} for path: {}", method.name(), path);
     }
@@ -297,6 +602,48 @@ public class RestClient {
     return responseObject;
   }
 
+  /**
+   * Exchange an entity with the server, hedging GETs if the config asks for it.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param <P> is the type of payload to send.
+   * @param method is the type of http call to be made.
+   * @param path the API path template being called.
+   * @param pathAndQuery the expanded path and query to call.
+   * @param httpEntity the headers and payload to send.
+   * @param clazz the class type of the resource to be obtained
+   * @return the response.
+   */
+  private <T, P> ResponseEntity<T> exchange(
+      HttpMethod method,
+      String path,
+      String pathAndQuery,
+      HttpEntity<P> httpEntity,
+      Class<T> clazz) {
+    Supplier<ResponseEntity<T>> call =
+        () ->
+            execute(
+                method,
+                path,
+                pathAndQuery,
+                uri -> restTemplate.exchange(uri, method, httpEntity, clazz));
+    return hedger != null && method == HttpMethod.GET ? hedged(call) : call.get();
+  }
+
+  /**
+   * Whether a call failed because the server refused a request body in the binary format.
+   *
+   * @param httpEntity the entity which was sent.
+   * @param e the failure.
+   * @return true if the body was in the binary format and the server answered 415.
+   */
+  private boolean isBinaryBodyRefused(HttpEntity<?> httpEntity, RestClientException e) {
+    return binaryBodiesAccepted
+        && e instanceof HttpClientErrorException
+        && ((HttpClientErrorException) e).getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE
+        && binaryMediaType.equals(httpEntity.getHeaders().getContentType());
+  }
+
   /**
    * Use to perform a GET that retrieves multiple instances of a resource
    *
@@ -347,6 +694,615 @@ public class RestClient {
     return responseList;
   }
 
+  /**
+   * Use to perform a GET that retrieves multiple instances of a resource, passing each one to the
+   * consumer as it is read from the response. Unlike getResources the response array is never held
+   * in memory, so this should be used for very large responses.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the class type of each resource in the returned array
+   * @param consumer receives each resource in the order returned by the server
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of resources passed to the consumer
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public <T> long streamResources(
+      String path, Class<T> clazz, Consumer<? super T> consumer, Object... pathParams)
+      throws ResponseStatusException {
+    return streamResources(path, clazz, consumer, null, null, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that retrieves multiple instances of a resource, passing each one to the
+   * consumer as it is read from the response. Unlike getResources the response array is never held
+   * in memory, so this should be used for very large responses.
+   *
+   * <p>The connection is released once the array has been read. If the consumer throws an
+   * exception, which is propagated to the caller, or the response isn't a JSON array, then the
+   * request is aborted rather than reading the rest of the response, and the connection is closed.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param clazz the class type of each resource in the returned array
+   * @param consumer receives each resource in the order returned by the server
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params keyed by string logically allows for
+   *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of resources passed to the consumer
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public <T> long streamResources(
+      String path,
+      Class<T> clazz,
+      Consumer<? super T> consumer,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("Enter streamResources for path : {}", path);
+    }
+
+    HttpHeaders headers = createHttpEntity(null, headerParams).getHeaders();
+    String pathAndQuery = expandPath(path, queryParams, pathParams);
+
+    // A failed read aborts the request, rather than reading the rest of the response to release the
+    // connection
+    RestClientRequestFactory.RequestTracker requests =
+        new RestClientRequestFactory.RequestTracker();
+    RestClientRequestFactory.trackRequests(requests);
+    Long count;
+    try {
+      count =
+          execute(
+              HttpMethod.GET,
+              path,
+              pathAndQuery,
+              uri ->
+                  restTemplate.execute(
+                      uri,
+                      HttpMethod.GET,
+                      request -> request.getHeaders().putAll(headers),
+                      response -> {
+                        try {
+                          return readArray(response, path, clazz, consumer);
+                        } catch (JsonProcessingException e) {
+                          // A bad payload says nothing about the endpoint, so isn't an I/O failure
+                          requests.abort();
+                          throw new RestClientException("Failed to read JSON array", e);
+                        } catch (RuntimeException e) {
+                          requests.abort();
+                          throw e;
+                        }
+                      }));
+    } catch (RestClientException e) {
+      throw handleFailure(HttpMethod.GET, path, e);
+    } finally {
+      RestClientRequestFactory.untrackRequests();
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("Exit streamResources for path: {} with {} resources", path, count);
+    }
+
+    return count;
+  }
+
+  /**
+   * Read a JSON array from a response, passing each element to the consumer as it is read.
+   *
+   * @param <T> the type of each element.
+   * @param response the response to read.
+   * @param path the API path template which was called.
+   * @param clazz the class type of each element.
+   * @param consumer receives each element.
+   * @return the number of elements read.
+   * @throws IOException if the response can't be read, or isn't a JSON array.
+   */
+  private <T> long readArray(
+      ClientHttpResponse response, String path, Class<T> clazz, Consumer<? super T> consumer)
+      throws IOException {
+    ObjectMapper mapper = objectMapperFor(response.getHeaders().getContentType());
+    ObjectReader reader = mapper.readerFor(clazz);
+    try (JsonParser parser = mapper.getFactory().createParser(response.getBody())) {
+      // Leave the body to be closed with the response, after any failed read has been aborted
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        logging
+            .with("path", path)
+            .with("statusCode", response.getStatusCode())
+            .error("Empty body returned for given path");
+        throw new ResponseStatusException(
+            mapToExternalStatus(response.getStatusCode()),
+            "Internal processing error. No response.");
+      }
+      if (token != JsonToken.START_ARRAY) {
+        throw new JsonParseException(parser, "Expected a JSON array");
+      }
+      long consumed = 0;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (token == null) {
+          throw new JsonParseException(parser, "Unexpected end of JSON array");
+        }
+        consumer.accept(reader.readValue(parser));
+        consumed++;
+      }
+      return consumed;
+    }
+  }
+
+  /**
+   * Use to perform GETs that retrieve a resource for each of a list of IDs, several at a time.
+   *
+   * @param <K> the type of the IDs
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - contains a single place holder for the ID ie "/cases/{caseid}"
+   * @param ids the IDs of the resources to get. Duplicates are only fetched once.
+   * @param clazz the class type of the resources to be obtained
+   * @param maxConcurrency the maximum number of calls to make at once
+   * @return the resource or failure for each ID
+   */
+  public <K, T> BulkResult<K, T> getResourcesByIds(
+      String path, Collection<K> ids, Class<T> clazz, int maxConcurrency) {
+    return getResourcesByIds(path, ids, clazz, maxConcurrency, null);
+  }
+
+  /**
+   * Use to perform GETs that retrieve a resource for each of a list of IDs, several at a time.
+   *
+   * <p>The calls are shared between the calling thread and up to maxConcurrency - 1 pool threads,
+   * and the concurrency is also limited to connectionManagerDefaultMaxPerRoute, as more calls than
+   * that would just wait for a connection. A failed call is recorded against its ID and doesn't
+   * stop the other calls.
+   *
+   * @param <K> the type of the IDs
+   * @param <T> the type that will returned by the server we call
+   * @param path the API path - contains a single place holder for the ID ie "/cases/{caseid}"
+   * @param ids the IDs of the resources to get. Duplicates are only fetched once.
+   * @param clazz the class type of the resources to be obtained
+   * @param maxConcurrency the maximum number of calls to make at once
+   * @param headerParams map of header of params to be used - can be null
+   * @return the resource or failure for each ID
+   * @throws ResponseStatusException if the calling thread is interrupted
+   */
+  public <K, T> BulkResult<K, T> getResourcesByIds(
+      String path,
+      Collection<K> ids,
+      Class<T> clazz,
+      int maxConcurrency,
+      Map<String, String> headerParams)
+      throws ResponseStatusException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("Enter getResourcesByIds for path : {} with {} ids", path, ids.size());
+    }
+
+    List<K> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<K, T> results = new ConcurrentHashMap<>();
+    Map<K, ResponseStatusException> failures = new ConcurrentHashMap<>();
+    AtomicInteger next = new AtomicInteger();
+    Runnable worker =
+        () -> {
+          int i;
+          while ((i = next.getAndIncrement()) < uniqueIds.size()) {
+            K id = uniqueIds.get(i);
+            try {
+              results.put(id, getResource(path, clazz, headerParams, null, id));
+            } catch (ResponseStatusException e) {
+              failures.put(id, e);
+            } catch (RuntimeException e) {
+              logging.with("path", path).with("id", id).error("request failed for the given id", e);
+              failures.put(
+                  id,
+                  new ResponseStatusException(
+                      HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error", e));
+            }
+          }
+        };
+
+    int connections =
+        Math.min(
+            config.getConnectionManagerDefaultMaxPerRoute() * balancer.getEndpoints().size(),
+            config.getConnectionManagerMaxTotal());
+    int workers = Math.min(Math.min(maxConcurrency, connections), uniqueIds.size());
+    // Workers on the fan out threads share the caller's deadline
+    Deadline deadline = Deadline.current();
+    Runnable fanOutWorker =
+        deadline == null
+            ? worker
+            : () -> {
+              try (Deadline.Scope scope = deadline.attach()) {
+                worker.run();
+              }
+            };
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int w = 1; w < workers; w++) {
+        futures.add(fanOutExecutor.submit(fanOutWorker));
+      }
+    } catch (RejectedExecutionException e) {
+      log.debug("Fan out pool is busy, continuing with {} workers", futures.size() + 1);
+    }
+    worker.run();
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        next.set(uniqueIds.size());
+        futures.forEach(f -> f.cancel(true));
+        throw new ResponseStatusException(
+            HttpStatus.INTERNAL_SERVER_ERROR, "Interrupted while getting resources", e);
+      } catch (ExecutionException e) {
+        throw new ResponseStatusException(
+            HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error", e.getCause());
+      }
+    }
+
+    Map<K, T> orderedResults = new LinkedHashMap<>();
+    Map<K, ResponseStatusException> orderedFailures = new LinkedHashMap<>();
+    for (K id : uniqueIds) {
+      if (results.containsKey(id)) {
+        orderedResults.put(id, results.get(id));
+      } else {
+        orderedFailures.put(id, failures.get(id));
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Exit getResourcesByIds for path: {} with {} results and {} failures",
+          path,
+          orderedResults.size(),
+          orderedFailures.size());
+    }
+
+    return new BulkResult<>(orderedResults, orderedFailures);
+  }
+
+  /**
+   * Use to perform a GET that copies the response body to a stream, for bodies too large to hold in
+   * memory. The body is copied through a small buffer as it arrives, and the stream is not closed.
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param out receives the response body
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of bytes copied
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public long downloadResource(String path, OutputStream out, Object... pathParams)
+      throws ResponseStatusException {
+    return downloadResource(path, out, null, null, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that copies the response body to a stream, for bodies too large to hold in
+   * memory. The body is copied through a small buffer as it arrives, and the stream is not closed.
+   * Any content type is accepted unless the header params include an Accept header.
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param out receives the response body
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params keyed by string logically allows for
+   *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of bytes copied
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public long downloadResource(
+      String path,
+      OutputStream out,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+    return doDownload(path, body -> copy(body, out), headerParams, queryParams, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that writes the response body to a channel, as {@link
+   * #downloadResource(String, OutputStream, Map, MultiValueMap, Object...)} does to a stream.
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param channel receives the response body, and is not closed
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params - can be null
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of bytes written
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public long downloadResource(
+      String path,
+      WritableByteChannel channel,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+    return downloadResource(
+        path, Channels.newOutputStream(channel), headerParams, queryParams, pathParams);
+  }
+
+  /**
+   * Use to perform a GET that saves the response body to a file, as {@link
+   * #downloadResource(String, OutputStream, Map, MultiValueMap, Object...)} does to a stream. The
+   * body is saved to a temporary file in the same directory, which replaces the file once the whole
+   * body has been read, so a download which fails part way through leaves any existing file as it
+   * was.
+   *
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param file the file to save the response body in
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params - can be null
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the number of bytes saved
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public long downloadResource(
+      String path,
+      Path file,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+    return doDownload(path, body -> saveToFile(body, file), headerParams, queryParams, pathParams);
+  }
+
+  private long doDownload(
+      String path,
+      ResponseBodyConsumer consumer,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("Enter downloadResource for path : {}", path);
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(createHttpEntity(null, headerParams).getHeaders());
+    if (headerParams == null
+        || headerParams.keySet().stream().noneMatch(HttpHeaders.ACCEPT::equalsIgnoreCase)) {
+      headers.setAccept(List.of(MediaType.ALL));
+    }
+    String pathAndQuery = expandPath(path, queryParams, pathParams);
+
+    Long count;
+    try {
+      count =
+          execute(
+              HttpMethod.GET,
+              path,
+              pathAndQuery,
+              uri ->
+                  restTemplate.execute(
+                      uri,
+                      HttpMethod.GET,
+                      request -> request.getHeaders().putAll(headers),
+                      response -> consumer.consume(response.getBody())));
+    } catch (RestClientException e) {
+      throw handleFailure(HttpMethod.GET, path, e);
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("Exit downloadResource for path: {} after {} bytes", path, count);
+    }
+    return count;
+  }
+
+  /**
+   * Use to send a request body read from a stream, for bodies too large to hold in memory. The body
+   * is copied to the connection through a small buffer, and the stream is not closed. As the stream
+   * can only be read once, the call is never retried.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param method the method to call with, usually POST or PUT
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param body the request body
+   * @param contentLength the length of the body, or -1 if it isn't known
+   * @param clazz the expected response object type
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the response object, or null if the response has no body
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public <T> T uploadResource(
+      HttpMethod method,
+      String path,
+      InputStream body,
+      long contentLength,
+      Class<T> clazz,
+      Object... pathParams)
+      throws ResponseStatusException {
+    return uploadResource(method, path, body, contentLength, clazz, null, null, pathParams);
+  }
+
+  /**
+   * Use to send a request body read from a stream, for bodies too large to hold in memory. The body
+   * is copied to the connection through a small buffer, and the stream is not closed. As the stream
+   * can only be read once, the call is never retried. The content type is application/octet-stream
+   * unless the header params include one.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param method the method to call with, usually POST or PUT
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param body the request body
+   * @param contentLength the length of the body, or -1 if it isn't known
+   * @param clazz the expected response object type
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params - can be null
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the response object, or null if the response has no body
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public <T> T uploadResource(
+      HttpMethod method,
+      String path,
+      InputStream body,
+      long contentLength,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+    return doUpload(
+        method,
+        path,
+        out -> copy(body, out),
+        contentLength,
+        false,
+        clazz,
+        headerParams,
+        queryParams,
+        pathParams);
+  }
+
+  /**
+   * Use to send a file as the request body, as {@link #uploadResource(HttpMethod, String,
+   * InputStream, long, Class, Map, MultiValueMap, Object...)} does a stream. The file is read again
+   * for each attempt, so GET and PUT calls are retried if the config asks for retries.
+   *
+   * @param <T> the type that will returned by the server we call
+   * @param method the method to call with, usually POST or PUT
+   * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
+   * @param file the file to send
+   * @param clazz the expected response object type
+   * @param headerParams map of header of params to be used - can be null
+   * @param queryParams multi map of query params - can be null
+   * @param pathParams vargs list of params to substitute in the path - note simply used in order
+   * @return the response object, or null if the response has no body
+   * @throws ResponseStatusException something went wrong making http call
+   */
+  public <T> T uploadResource(
+      HttpMethod method,
+      String path,
+      Path file,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+    long contentLength;
+    try {
+      contentLength = Files.size(file);
+    } catch (IOException e) {
+      logging.with("path", path).with("file", file).error("Failed to read file to upload", e);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error", e);
+    }
+    return doUpload(
+        method,
+        path,
+        out -> Files.copy(file, out),
+        contentLength,
+        method == HttpMethod.GET || method == HttpMethod.PUT,
+        clazz,
+        headerParams,
+        queryParams,
+        pathParams);
+  }
+
+  private <T> T doUpload(
+      HttpMethod method,
+      String path,
+      StreamingHttpOutputMessage.Body body,
+      long contentLength,
+      boolean retryable,
+      Class<T> clazz,
+      Map<String, String> headerParams,
+      MultiValueMap<String, String> queryParams,
+      Object... pathParams)
+      throws ResponseStatusException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("Enter uploadResource {} for path: {}", method.name(), path);
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(createHttpEntity(null, headerParams).getHeaders());
+    if (headers.getContentType() == null) {
+      headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+    }
+    if (contentLength >= 0) {
+      headers.setContentLength(contentLength);
+    }
+    String pathAndQuery = expandPath(path, queryParams, pathParams);
+    ResponseExtractor<ResponseEntity<T>> extractor =
+        streamingRestTemplate.responseEntityExtractor(clazz);
+
+    ResponseEntity<T> response;
+    try {
+      response =
+          execute(
+              method,
+              path,
+              pathAndQuery,
+              retryable,
+              uri ->
+                  streamingRestTemplate.execute(
+                      uri,
+                      method,
+                      request -> {
+                        request.getHeaders().putAll(headers);
+                        ((StreamingHttpOutputMessage) request).setBody(body);
+                      },
+                      extractor));
+    } catch (RestClientException e) {
+      throw handleFailure(method, path, e);
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("Exit uploadResource {} for path: {}", method.name(), path);
+    }
+    return response.getBody();
+  }
+
+  /**
+   * Copy a stream through a small buffer, counting the bytes.
+   *
+   * @param in the stream to read.
+   * @param out the stream to write.
+   * @return the number of bytes copied.
+   * @throws IOException if either stream fails.
+   */
+  private static long copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+    long count = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+      count += read;
+    }
+    out.flush();
+    return count;
+  }
+
+  /** Reads a response body, returning the number of bytes read. */
+  private static long saveToFile(InputStream body, Path file) throws IOException {
+    Path target = file.toAbsolutePath();
+    Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".part");
+    try {
+      long count = Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return count;
+    } catch (IOException | RuntimeException e) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException deleteFailure) {
+        e.addSuppressed(deleteFailure);
+      }
+      throw e;
+    }
+  }
+
+  private interface ResponseBodyConsumer {
+    long consume(InputStream body) throws IOException;
+  }
+
   /**
    * used to post
    *
@@ -434,26 +1390,163 @@ public class RestClient {
   }
 
   /**
-   * used to create the URiComponents needed to call an endpoint
+   * Run a call against one of the endpoints, through the rate limiter, circuit breaker and bulkhead
+   * if the config asks for them. GET and PUT calls are retried if the config asks for retries, as
+   * they are idempotent, and each attempt may go to a different endpoint.
+   *
+   * @param <T> the type returned by the call.
+   * @param method is the type of http call being made.
+   * @param path the API path template being called.
+   * @param pathAndQuery the expanded path and query to call.
+   * @param call the call to the RestTemplate, given the full URI to call.
+   * @return the result of the call.
+   * @throws ResponseStatusException with a 503 or 429 status if the call was rejected.
+   */
+  private <T> T execute(HttpMethod method, String path, String pathAndQuery, Function<URI, T> call)
+      throws ResponseStatusException {
+    return execute(
+        method, path, pathAndQuery, method == HttpMethod.GET || method == HttpMethod.PUT, call);
+  }
+
+  /**
+   * Run a call against one of the endpoints, as above, but only retried if it is retryable.
+   *
+   * @param <T> the type returned by the call.
+   * @param method is the type of http call being made.
+   * @param path the API path template being called.
+   * @param pathAndQuery the expanded path and query to call.
+   * @param retryable true if the call may be retried.
+   * @param call the call to the RestTemplate, given the full URI to call.
+   * @return the result of the call.
+   * @throws ResponseStatusException with a 503 or 429 status if the call was rejected.
+   */
+  private <T> T execute(
+      HttpMethod method, String path, String pathAndQuery, boolean retryable, Function<URI, T> call)
+      throws ResponseStatusException {
+    Deadline deadline = Deadline.current();
+    Supplier<T> attempt =
+        () -> {
+          if (deadline != null && deadline.isExpired()) {
+            log.info("Deadline exceeded before {} for path: {}", method.name(), path);
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Deadline exceeded");
+          }
+          // The endpoint is only chosen once the call is permitted, so that a call rejected by the
+          // breaker, bulkhead or rate limiter isn't recorded against an endpoint
+          Supplier<T> balanced =
+              () -> {
+                Endpoint endpoint = balancer.acquire();
+                URI uri = URI.create(endpoint.getBaseUrl() + pathAndQuery);
+                boolean failed = false;
+                boolean abandoned = false;
+                try {
+                  return call.apply(uri);
+                } catch (ResourceAccessException | HttpServerErrorException e) {
+                  // Losing a hedge, or timing out because the deadline was short, says nothing
+                  // about the endpoint
+                  abandoned = RestClientRequestFactory.isAborted();
+                  failed = !abandoned && (deadline == null || !deadline.isExpired());
+                  throw e;
+                } finally {
+                  if (abandoned) {
+                    balancer.abandon(endpoint);
+                  } else {
+                    balancer.release(endpoint, failed);
+                  }
+                }
+              };
+          return resilience == null ? balanced.get() : resilience.execute(path, balanced);
+        };
+    Timer.Sample sample = requestMetrics.start();
+    T result = null;
+    Throwable failure = null;
+    try {
+      if (retryTemplate == null || !retryable) {
+        result = attempt.get();
+      } else {
+        result = retryTemplate.execute(context -> attempt.get());
+      }
+      return result;
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      // The I/O failure of a request the client aborted, such as a losing hedge, isn't recorded
+      if (!(failure instanceof ResourceAccessException && RestClientRequestFactory.isAborted())) {
+        requestMetrics.stop(sample, method, uriTag(path), result, failure);
+      }
+    }
+  }
+
+  /**
+   * Make a call through the hedger, so that a duplicate call is made if it is slow. Once one call
+   * has succeeded the requests made by both are aborted, which stops the slower one reading from
+   * its socket and frees its connection. Aborting the request which succeeded has no effect, and
+   * the aborted call isn't counted against its endpoint or in the metrics.
+   *
+   * @param <T> the type returned by the call.
+   * @param call the call, which must be idempotent.
+   * @return the result of the first call to succeed.
+   * @throws ResponseStatusException if the calling thread was interrupted.
+   */
+  private <T> T hedged(Supplier<T> call) throws ResponseStatusException {
+    Deadline deadline = Deadline.current();
+    RestClientRequestFactory.RequestTracker requests =
+        new RestClientRequestFactory.RequestTracker();
+    try {
+      return hedger.call(
+          () -> {
+            RestClientRequestFactory.trackRequests(requests);
+            try (Deadline.Scope scope = deadline == null ? null : deadline.attach()) {
+              return call.get();
+            } finally {
+              RestClientRequestFactory.untrackRequests();
+            }
+          });
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Interrupted waiting for hedged call", e);
+    } catch (Exception e) {
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error", e);
+    } finally {
+      requests.abort();
+    }
+  }
+
+  /**
+   * The path to tag metrics with, which is "other" unless the path has place holders.
+   *
+   * @param path the API path template being called.
+   * @return the tag value.
+   */
+  private static String uriTag(String path) {
+    return PathTemplate.name(path);
+  }
+
+  /**
+   * used to create the path and query needed to call an endpoint. The path is compiled into a
+   * template on first use, so that later calls only have to substitute the params.
    *
    * @param path the API path - can contain path params place holders in "{}" ie "/cases/{caseid}"
    * @param queryParams multi map of query params keyed by string logically allows for
    *     K:"haircolor",V:"blond" AND K:"shoesize", V:"9","10"
    * @param pathParams vargs list of params to substitute in the path - note simply used in order
-   * @return the components
+   * @return the encoded path and query
    */
-  private UriComponents createUriComponents(
+  private String expandPath(
       String path, MultiValueMap<String, String> queryParams, Object... pathParams) {
-    UriComponents uriComponents =
-        UriComponentsBuilder.newInstance()
-            .scheme(config.getScheme())
-            .host(config.getHost())
-            .port(config.getPort())
-            .path(path)
-            .queryParams(queryParams)
-            .buildAndExpand(pathParams)
-            .encode();
-    return uriComponents;
+    PathTemplate template = pathTemplates.get(path);
+    if (template == null) {
+      template = PathTemplate.compile(path);
+      // Don't let callers who build their own paths fill the cache
+      if (pathTemplates.size() < MAX_PATH_TEMPLATES) {
+        pathTemplates.putIfAbsent(path, template);
+      }
+    }
+    return template.expand("", queryParams, pathParams);
   }
 
   /**
@@ -465,23 +1558,119 @@ public class RestClient {
    * @return the header entity
    */
   private <H> HttpEntity<H> createHttpEntity(H entity, Map<String, String> headerParams) {
+    boolean binaryBody = entity != null && binaryBodiesAccepted;
+    if (headerParams == null || headerParams.isEmpty()) {
+      return new HttpEntity<H>(entity, binaryBody ? binaryBodyHeaders : defaultHeaders);
+    }
+
     HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT, accept);
+    if (binaryBody) {
+      headers.setContentType(binaryMediaType);
+    }
+    for (Map.Entry<String, String> me : headerParams.entrySet()) {
+      headers.set(me.getKey(), me.getValue());
+    }
+    if (authorization != null) {
+      headers.set(HttpHeaders.AUTHORIZATION, authorization);
+    }
+    return new HttpEntity<H>(entity, headers);
+  }
+
+  /**
+   * Once the server has answered in the binary format it is taken to accept request bodies in it,
+   * unless it has already refused one.
+   *
+   * @param contentType the content type of a successful response.
+   */
+  private void noteResponseContentType(MediaType contentType) {
+    if (binaryMediaType != null
+        && !binaryBodiesAccepted
+        && !binaryBodiesRefused
+        && contentType != null
+        && binaryMediaType.isCompatibleWith(contentType)) {
+      log.info("Server answered in {}, sending request bodies in it", binaryMediaType);
+      binaryBodiesAccepted = true;
+    }
+  }
 
-    headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
-    if (headerParams != null) {
-      for (Map.Entry<String, String> me : headerParams.entrySet()) {
-        headers.set(me.getKey(), me.getValue());
+  /**
+   * Find the mapper for a response, which is in JSON unless the server chose the binary format.
+   *
+   * @param contentType the content type of the response.
+   * @return the mapper to read the response with.
+   */
+  private ObjectMapper objectMapperFor(MediaType contentType) {
+    if (contentType != null
+        && binaryMediaType != null
+        && binaryMediaType.isCompatibleWith(contentType)) {
+      for (HttpMessageConverter<?> converter : restTemplate.getMessageConverters()) {
+        if (converter instanceof AbstractJackson2HttpMessageConverter
+            && converter.getSupportedMediaTypes().stream()
+                .anyMatch(contentType::isCompatibleWith)) {
+          return ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper();
+        }
       }
     }
+    return objectMapper;
+  }
+
+  /**
+   * Log a failed http call and create the exception to fail the call with.
+   *
+   * @param method is the type of http call that was made.
+   * @param path the API path that was called. The expanded path isn't logged, as it may hold
+   *     personal data.
+   * @param e the exception raised by the RestTemplate.
+   * @return the exception to throw. For 4xx and 5xx responses its reason is the response body,
+   *     which is no longer than the configured errorBodyMaxBytes.
+   */
+  private ResponseStatusException handleFailure(
+      HttpMethod method, String path, RestClientException e) {
+    String errorMessage = "request failed for the given path";
+    Deadline deadline = Deadline.current();
+    if (e instanceof ResourceAccessException && deadline != null && deadline.isExpired()) {
+      log.info("Deadline exceeded during {} for path: {}", method.name(), path);
+      requestMetrics.countError(method, uriTag(path), null, HttpStatus.GATEWAY_TIMEOUT);
+      return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Deadline exceeded", e);
+    }
+    if (!(e instanceof HttpStatusCodeException)) {
+      logging.with("path", path).with("methodName", method.name()).error(errorMessage, e);
+      requestMetrics.countError(method, uriTag(path), null, HttpStatus.INTERNAL_SERVER_ERROR);
+      return new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Internal processing error");
+    }
 
-    if (this.config.getUsername() != null && this.config.getPassword() != null) {
-      String auth = this.config.getUsername() + ":" + this.config.getPassword();
-      byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(Charset.forName("US-ASCII")));
-      String authHeader = "Basic " + new String(encodedAuth);
-      headers.set("Authorization", authHeader);
+    // Failure detected. For 4xx and 5xx status codes
+    HttpStatusCodeException statusCodeException = (HttpStatusCodeException) e;
+    // Decoded once, for both the log and the reason
+    String responseBody = statusCodeException.getResponseBodyAsString();
+    if (statusCodeException.getStatusCode() == HttpStatus.NOT_FOUND) {
+      errorMessage = "dealing with NOT_FOUND";
+      logging
+          .with("path", path)
+          .with("methodName", method.name())
+          .with("Status", statusCodeException.getStatusCode())
+          .with("ResponseBody", responseBody)
+          .warn(errorMessage);
+    } else if (statusCodeException.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+      // Caller expected to handle this situation
+      log.info("Too many requests response on {} for path: {}", method.name(), path);
+    } else {
+      logging
+          .with("path", path)
+          .with("methodName", method.name())
+          .with("statusCode", statusCodeException.getStatusCode())
+          .with("responseBody", responseBody)
+          .error(errorMessage);
+      if (log.isDebugEnabled()) {
+        logging.debug(errorMessage, e);
+      }
     }
-    HttpEntity<H> httpEntity = new HttpEntity<H>(entity, headers);
-    return httpEntity;
+    HttpStatus mappedStatus = mapToExternalStatus(statusCodeException.getStatusCode());
+    requestMetrics.countError(
+        method, uriTag(path), statusCodeException.getStatusCode(), mappedStatus);
+    return new ResponseStatusException(mappedStatus, responseBody, e);
   }
 
   /**
@@ -1,9 +1,11 @@
 package uk.gov.ons.ctp.common.rest;
 
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import uk.gov.ons.ctp.common.config.CustomCircuitBreakerConfig;
 
 @Data
 @Builder
@@ -13,11 +15,30 @@ public class RestClientConfig {
   @Builder.Default private String scheme = "http";
   @Builder.Default private String host = "localhost";
   @Builder.Default private String port = "8080";
+  // Replicas of the server, each as "host:port", to call directly instead of host and port. The
+  // host is still used to name the server in logs and metrics
+  private List<String> endpoints;
+  // How calls are spread across the endpoints
+  @Builder.Default private LoadBalancing loadBalancing = LoadBalancing.ROUND_ROBIN;
+  // Consecutive failures after which an endpoint is ejected. Use '0' to never eject
+  @Builder.Default private int outlierConsecutiveFailures = 5;
+  // Time for which an ejected endpoint gets no calls
+  @Builder.Default private long outlierEjectionMillis = 30000;
+
   private String username;
   private String password;
 
   @Builder.Default private int connectionManagerDefaultMaxPerRoute = 20;
   @Builder.Default private int connectionManagerMaxTotal = 50;
+  // Maximum lifetime of a pooled connection. Use '0' to keep connections indefinitely
+  @Builder.Default private int connectionTimeToLiveMillis = 0;
+  // Idle time after which a pooled connection is checked before reuse. Use '0' to disable
+  @Builder.Default private int validateAfterInactivityMillis = 2000;
+  // Idle time after which a background thread closes a pooled connection. Use '0' to disable
+  @Builder.Default private int idleConnectionEvictMillis = 0;
+  // Maximum time to keep an idle connection alive, if the server doesn't ask for less. Use '0' to
+  // keep alive for as long as the server allows
+  @Builder.Default private int keepAliveMillis = 0;
 
   // Timeout value for establishing a connection with the destination server
   @Builder.Default private int connectTimeoutMillis = 0;
@@ -25,4 +46,74 @@ public class RestClientConfig {
   @Builder.Default private int connectionRequestTimeoutMillis = 0;
   // Maximum time to wait between data packets
   @Builder.Default private int socketTimeoutMillis = 0;
+  // Most of an error response body to read, log and use as the reason for the failure. Use '0' to
+  // read all of it
+  @Builder.Default private int errorBodyMaxBytes = 4096;
+
+  // Maximum number of GET responses to hold in the response cache. Use '0' to disable caching.
+  // Cached objects are shared between callers, so must not be modified
+  @Builder.Default private int responseCacheMaxEntries = 0;
+
+  // Binary form of JSON to ask the server for. The server answers in JSON if it doesn't support it,
+  // and request bodies are only sent in the binary form once the server has answered in it. Needs
+  // the optional jackson-dataformat-smile or jackson-dataformat-cbor dependency
+  @Builder.Default private BinaryFormat binaryFormat = BinaryFormat.NONE;
+
+  // Size at which request bodies are gzipped. The server must accept gzipped bodies. Use '0' to
+  // disable
+  @Builder.Default private int requestCompressionThresholdBytes = 0;
+
+  // Circuit breaker to run every call through. Leave unset to call without a breaker
+  private CustomCircuitBreakerConfig circuitBreaker;
+  // Maximum number of concurrent calls, beyond which calls are rejected. Use '0' for no limit
+  @Builder.Default private int bulkheadMaxConcurrentCalls = 0;
+  // Time a call waits for a place in the bulkhead before it is rejected
+  @Builder.Default private int bulkheadMaxWaitMillis = 0;
+  // Calls allowed in each rateLimitPeriodMillis, beyond which calls wait. Use '0' for no limit
+  @Builder.Default private int rateLimitCalls = 0;
+  // Period after which the calls allowed by the rate limit are replenished
+  @Builder.Default private long rateLimitPeriodMillis = 1000;
+  // Time a call waits for the rate limit before it is rejected. Use '0' to reject immediately
+  @Builder.Default private long rateLimitMaxWaitMillis = 0;
+  // Whether calls share one circuit breaker, bulkhead and rate limit, or have one for each path
+  @Builder.Default private ResilienceScope resilienceScope = ResilienceScope.HOST;
+
+  // Maximum attempts for GET and PUT calls that fail with 429 or 503. Use '1' to disable retries
+  @Builder.Default private int retryMaxAttempts = 1;
+  // Limit of the random delay before the first retry, when the server gives no Retry-After
+  @Builder.Default private long retryInitialBackoffMillis = 100;
+  // Most that the limit of the random delay grows to
+  @Builder.Default private long retryMaxBackoffMillis = 5000;
+  // Factor by which the limit of the random delay grows after each retry
+  @Builder.Default private double retryMultiplier = 2.0;
+  // Time after the first attempt by which a retried call must be over
+  @Builder.Default private long retryDeadlineMillis = 10000;
+
+  // Time after which a slow GET is hedged with a duplicate call, usually to another endpoint. Use
+  // '0' to disable hedging unless hedgePercentile is set
+  @Builder.Default private long hedgeDelayMillis = 0;
+  // Percentile of recent GET latencies after which to hedge, if longer than hedgeDelayMillis. Use
+  // '0' to hedge after hedgeDelayMillis alone
+  @Builder.Default private double hedgePercentile = 0;
+  // Maximum hedges as a percentage of GET calls
+  @Builder.Default private int hedgeMaxPercent = 5;
+
+  // Whether fan out and hedged calls run on virtual threads, which needs Java 21 or later
+  @Builder.Default private boolean virtualThreads = false;
+
+  public enum LoadBalancing {
+    ROUND_ROBIN,
+    LEAST_OUTSTANDING
+  }
+
+  public enum ResilienceScope {
+    HOST,
+    PATH
+  }
+
+  public enum BinaryFormat {
+    NONE,
+    SMILE,
+    CBOR
+  }
 }
@@ -0,0 +1,129 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Request factory which applies the {@link Deadline} attached to the calling thread: the timeouts
+ * are capped at the time remaining, and the time remaining is sent in the {@link Deadline#HEADER}
+ * header. Without a deadline requests use the client's configured timeouts.
+ *
+ * <p>It can also pass the requests it creates on a thread to a {@link RequestTracker}, so that they
+ * can be aborted from another thread. Interrupting a thread doesn't stop it reading from a socket,
+ * but aborting the request does.
+ */
+class RestClientRequestFactory extends HttpComponentsClientHttpRequestFactory {
+  private static final ThreadLocal<RequestTracker> TRACKER = new ThreadLocal<>();
+
+  private final RequestConfig requestConfig;
+
+  /**
+   * Constructor
+   *
+   * @param httpClient the client to make requests with.
+   * @param requestConfig the client's configured timeouts.
+   */
+  RestClientRequestFactory(HttpClient httpClient, RequestConfig requestConfig) {
+    super(httpClient);
+    this.requestConfig = requestConfig;
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+    ClientHttpRequest request = super.createRequest(uri, httpMethod);
+    Deadline deadline = Deadline.current();
+    if (deadline != null) {
+      request
+          .getHeaders()
+          .set(Deadline.HEADER, Long.toString(Math.max(0, deadline.remainingMillis())));
+    }
+    return request;
+  }
+
+  /**
+   * Pass the requests created on the current thread to a tracker, until {@link #untrackRequests}.
+   *
+   * @param tracker receives each request as it is created.
+   */
+  static void trackRequests(RequestTracker tracker) {
+    TRACKER.set(tracker);
+  }
+
+  /**
+   * Whether the requests created on the current thread have been aborted by their tracker, in which
+   * case their failure is the abort rather than the server.
+   *
+   * @return true if the tracker has aborted the requests.
+   */
+  static boolean isAborted() {
+    RequestTracker tracker = TRACKER.get();
+    return tracker != null && tracker.aborted;
+  }
+
+  /** Stop passing the requests created on the current thread to a tracker. */
+  static void untrackRequests() {
+    TRACKER.remove();
+  }
+
+  @Override
+  protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+    HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+    RequestTracker tracker = TRACKER.get();
+    if (tracker != null) {
+      tracker.add(request);
+    }
+    return request;
+  }
+
+  @Override
+  protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+    Deadline deadline = Deadline.current();
+    if (deadline == null) {
+      return null;
+    }
+    // A timeout of '0' means infinite, so the least that can be set is 1ms
+    int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, deadline.remainingMillis()));
+    HttpClientContext context = HttpClientContext.create();
+    context.setRequestConfig(
+        RequestConfig.copy(requestConfig)
+            .setConnectTimeout(cap(requestConfig.getConnectTimeout(), remaining))
+            .setConnectionRequestTimeout(
+                cap(requestConfig.getConnectionRequestTimeout(), remaining))
+            .setSocketTimeout(cap(requestConfig.getSocketTimeout(), remaining))
+            .build());
+    return context;
+  }
+
+  private static int cap(int timeout, int remaining) {
+    return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+  }
+
+  /** The requests made for a call, which can be aborted together once the call is abandoned. */
+  static class RequestTracker {
+    private final Queue<HttpUriRequest> requests = new ConcurrentLinkedQueue<>();
+    private volatile boolean aborted;
+
+    private void add(HttpUriRequest request) {
+      requests.add(request);
+      if (aborted) {
+        request.abort();
+      }
+    }
+
+    /** Abort the requests, including any created from now on. */
+    void abort() {
+      aborted = true;
+      requests.forEach(HttpUriRequest::abort);
+    }
+  }
+}
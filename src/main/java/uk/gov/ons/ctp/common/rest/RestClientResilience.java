@@ -0,0 +1,165 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.rest.RestClientConfig.ResilienceScope;
+
+/**
+ * Runs {@link RestClient} calls through a Resilience4j rate limiter, semaphore bulkhead and circuit
+ * breaker.
+ *
+ * <p>The rate limiter is a token bucket which holds the number of calls allowed in a period, and is
+ * refilled at the start of each period. A call that finds the bucket empty waits for it to be
+ * refilled, for up to the configured time, so that calls are smoothed to the rate the server
+ * publishes rather than provoking 429 (Too Many Requests) responses. A call which can't get a token
+ * in time fails with a 429 status without calling the server. Each retry takes a token.
+ *
+ * <p>The bulkhead limits the number of concurrent calls, so that a slow server can't hold all of
+ * the caller's threads. The circuit breaker opens when too many calls fail or are slow, after which
+ * calls fail immediately until the server has had time to recover. Calls rejected by either fail
+ * with a 503 (Service Unavailable) status.
+ *
+ * <p>Only server errors, 429 (Too Many Requests) responses and I/O failures count as failures. A
+ * 4xx response means that the server is working, so doesn't count against the breaker.
+ *
+ * <p>The rate limiters, breakers and bulkheads are named after the host, or after the host and the
+ * path when the scope is PATH. The path is the template, before its params are substituted, and
+ * paths without params are all named "other", as they are in the request metrics, so that a caller
+ * passing ready built paths doesn't create a breaker for each one.
+ */
+class RestClientResilience {
+  private static final Logger log = LoggerFactory.getLogger(RestClientResilience.class);
+
+  private final String host;
+  private final ResilienceScope scope;
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final BulkheadRegistry bulkheadRegistry;
+  private final RateLimiterRegistry rateLimiterRegistry;
+
+  /**
+   * Constructor
+   *
+   * @param config the client config, which must set a circuit breaker, a bulkhead or a rate limit.
+   */
+  RestClientResilience(RestClientConfig config) {
+    this.host = config.getHost();
+    this.scope = config.getResilienceScope();
+
+    if (config.getCircuitBreaker() == null) {
+      circuitBreakerRegistry = null;
+    } else {
+      CircuitBreakerConfig circuitBreakerConfig =
+          CircuitBreakerConfig.from(config.getCircuitBreaker().circuitBreakerConfig())
+              .recordException(RestClientResilience::isFailure)
+              .build();
+      circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+    }
+
+    if (config.getBulkheadMaxConcurrentCalls() <= 0) {
+      bulkheadRegistry = null;
+    } else {
+      BulkheadConfig bulkheadConfig =
+          BulkheadConfig.custom()
+              .maxConcurrentCalls(config.getBulkheadMaxConcurrentCalls())
+              .maxWaitDuration(Duration.ofMillis(config.getBulkheadMaxWaitMillis()))
+              .build();
+      bulkheadRegistry = BulkheadRegistry.of(bulkheadConfig);
+    }
+
+    if (config.getRateLimitCalls() <= 0) {
+      rateLimiterRegistry = null;
+    } else {
+      RateLimiterConfig rateLimiterConfig =
+          RateLimiterConfig.custom()
+              .limitForPeriod(config.getRateLimitCalls())
+              .limitRefreshPeriod(Duration.ofMillis(config.getRateLimitPeriodMillis()))
+              .timeoutDuration(Duration.ofMillis(config.getRateLimitMaxWaitMillis()))
+              .build();
+      rateLimiterRegistry = RateLimiterRegistry.of(rateLimiterConfig);
+    }
+  }
+
+  /**
+   * Determine if the config asks for a circuit breaker, bulkhead or rate limit.
+   *
+   * @param config the client config.
+   * @return true if calls need to be run through a RestClientResilience.
+   */
+  static boolean isEnabled(RestClientConfig config) {
+    return config.getCircuitBreaker() != null
+        || config.getBulkheadMaxConcurrentCalls() > 0
+        || config.getRateLimitCalls() > 0;
+  }
+
+  /**
+   * Run a call.
+   *
+   * @param <T> the type returned by the call.
+   * @param path the API path template being called.
+   * @param call the call.
+   * @return the result of the call.
+   * @throws ResponseStatusException with a 503 status if the call was rejected by the circuit
+   *     breaker or bulkhead, or a 429 status if it was rejected by the rate limiter.
+   */
+  <T> T execute(String path, Supplier<T> call) throws ResponseStatusException {
+    String name = name(path);
+    Supplier<T> decorated = call;
+    if (circuitBreakerRegistry != null) {
+      decorated =
+          CircuitBreaker.decorateSupplier(circuitBreakerRegistry.circuitBreaker(name), decorated);
+    }
+    if (bulkheadRegistry != null) {
+      decorated = Bulkhead.decorateSupplier(bulkheadRegistry.bulkhead(name), decorated);
+    }
+    if (rateLimiterRegistry != null) {
+      // Outermost, so that a call waiting for a token doesn't hold a place in the bulkhead
+      decorated = RateLimiter.decorateSupplier(rateLimiterRegistry.rateLimiter(name), decorated);
+    }
+
+    try {
+      return decorated.get();
+    } catch (CallNotPermittedException e) {
+      log.with("name", name).warn("Circuit breaker is open, rejecting call");
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE, "Circuit breaker open for " + name, e);
+    } catch (BulkheadFullException e) {
+      log.with("name", name).warn("Too many concurrent calls, rejecting call");
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent calls to " + name, e);
+    } catch (RequestNotPermitted e) {
+      log.with("name", name).warn("Rate limit reached, rejecting call");
+      throw new ResponseStatusException(
+          HttpStatus.TOO_MANY_REQUESTS, "Rate limit reached for " + name, e);
+    }
+  }
+
+  private String name(String path) {
+    return scope == ResilienceScope.PATH ? host + PathTemplate.name(path) : host;
+  }
+
+  private static boolean isFailure(Throwable t) {
+    if (!(t instanceof RestClientException)) {
+      return false;
+    }
+    return !(t instanceof HttpClientErrorException)
+        || ((HttpClientErrorException) t).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+  }
+}
@@ -0,0 +1,79 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.web.client.HttpStatusCodeException;
+import uk.gov.ons.ctp.common.rest.RetryAfterRetryPolicy.RetryAfterContext;
+
+/**
+ * A BackOffPolicy which waits for the delay worked out by the {@link RetryAfterRetryPolicy}, and
+ * counts each retry in the rest.client.retries metric, tagged with the status being retried.
+ */
+class RetryAfterBackOffPolicy implements BackOffPolicy {
+  private static final Logger log = LoggerFactory.getLogger(RetryAfterBackOffPolicy.class);
+  private static final String METRIC_NAME = "rest.client.retries";
+
+  private final Sleeper sleeper;
+  private final MeterRegistry meterRegistry;
+  private final String host;
+
+  /**
+   * Constructor
+   *
+   * @param sleeper waits for the delay.
+   * @param meterRegistry registry for the retry counter.
+   * @param host the host being called, used to tag the metric.
+   */
+  RetryAfterBackOffPolicy(Sleeper sleeper, MeterRegistry meterRegistry, String host) {
+    this.sleeper = sleeper;
+    this.meterRegistry = meterRegistry;
+    this.host = host;
+  }
+
+  @Override
+  public BackOffContext start(RetryContext context) {
+    return new RetryAfterBackOffContext((RetryAfterContext) context);
+  }
+
+  @Override
+  public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+    RetryAfterContext context = ((RetryAfterBackOffContext) backOffContext).retryContext;
+    int status = ((HttpStatusCodeException) context.getLastThrowable()).getRawStatusCode();
+    Counter.builder(METRIC_NAME)
+        .description("Calls retried by the RestClient")
+        .tag("host", host)
+        .tag("status", Integer.toString(status))
+        .register(meterRegistry)
+        .increment();
+
+    if (log.isDebugEnabled()) {
+      log.with("status", status)
+          .with("retryCount", context.getRetryCount())
+          .with("delayMillis", context.getDelayMillis())
+          .debug("Backing off before retry");
+    }
+    try {
+      sleeper.sleep(context.getDelayMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+    }
+  }
+
+  private static class RetryAfterBackOffContext implements BackOffContext {
+    private static final long serialVersionUID = -3215040312829637271L;
+
+    private final RetryAfterContext retryContext;
+
+    RetryAfterBackOffContext(RetryAfterContext retryContext) {
+      this.retryContext = retryContext;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package uk.gov.ons.ctp.common.rest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.context.RetryContextSupport;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * A RetryPolicy for {@link RestClient} calls which retries 429 (Too Many Requests) and 503 (Service
+ * Unavailable) responses.
+ *
+ * <p>The delay before each retry is taken from the Retry-After header of the response if it has
+ * one. Otherwise it is a random time up to an exponentially increasing limit, so that clients that
+ * failed together don't all retry together. A call is not retried if the delay would take it past
+ * the deadline, which is measured from the start of the first attempt.
+ *
+ * <p>The delay is worked out here, as it depends on the failure, and is then waited for by the
+ * {@link RetryAfterBackOffPolicy}.
+ */
+class RetryAfterRetryPolicy implements RetryPolicy {
+  private static final long serialVersionUID = 4190934411370862593L;
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final double multiplier;
+  private final long deadlineMillis;
+
+  /**
+   * Constructor
+   *
+   * @param maxAttempts the maximum number of attempts, including the first.
+   * @param initialBackoffMillis the limit of the random delay before the first retry.
+   * @param maxBackoffMillis the most that the limit of the random delay grows to.
+   * @param multiplier the factor by which the limit grows after each retry.
+   * @param deadlineMillis the time after the first attempt starts by which the call must be over.
+   */
+  RetryAfterRetryPolicy(
+      int maxAttempts,
+      long initialBackoffMillis,
+      long maxBackoffMillis,
+      double multiplier,
+      long deadlineMillis) {
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.multiplier = multiplier;
+    this.deadlineMillis = deadlineMillis;
+  }
+
+  @Override
+  public boolean canRetry(RetryContext context) {
+    RetryAfterContext retryAfterContext = (RetryAfterContext) context;
+    Throwable lastThrowable = context.getLastThrowable();
+    if (lastThrowable == null) {
+      return true;
+    }
+    return isRetryable(lastThrowable)
+        && context.getRetryCount() < maxAttempts
+        && System.currentTimeMillis() + retryAfterContext.getDelayMillis()
+            <= retryAfterContext.getDeadline();
+  }
+
+  @Override
+  public RetryContext open(RetryContext parent) {
+    long now = System.currentTimeMillis();
+    long deadline = now + deadlineMillis;
+    // Don't retry past the deadline of the request being served
+    Deadline requestDeadline = Deadline.current();
+    if (requestDeadline != null) {
+      deadline = Math.min(deadline, now + requestDeadline.remainingMillis());
+    }
+    return new RetryAfterContext(parent, deadline);
+  }
+
+  @Override
+  public void close(RetryContext context) {}
+
+  @Override
+  public void registerThrowable(RetryContext context, Throwable throwable) {
+    RetryAfterContext retryAfterContext = (RetryAfterContext) context;
+    retryAfterContext.registerThrowable(throwable);
+    if (throwable != null && isRetryable(throwable)) {
+      retryAfterContext.delayMillis = delayMillis((HttpStatusCodeException) throwable, context);
+    }
+  }
+
+  private static boolean isRetryable(Throwable throwable) {
+    if (!(throwable instanceof HttpStatusCodeException)) {
+      return false;
+    }
+    HttpStatus status = ((HttpStatusCodeException) throwable).getStatusCode();
+    return status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.SERVICE_UNAVAILABLE;
+  }
+
+  private long delayMillis(HttpStatusCodeException e, RetryContext context) {
+    long retryAfterMillis = retryAfterMillis(e.getResponseHeaders());
+    if (retryAfterMillis >= 0) {
+      return retryAfterMillis;
+    }
+    double limit =
+        Math.min(
+            maxBackoffMillis,
+            initialBackoffMillis * Math.pow(multiplier, context.getRetryCount() - 1));
+    return (long) (ThreadLocalRandom.current().nextDouble() * limit);
+  }
+
+  /**
+   * Get the delay asked for by a Retry-After header, which is either a number of seconds or a date.
+   *
+   * @param headers the response headers.
+   * @return the delay, or -1 if there isn't a valid header.
+   */
+  static long retryAfterMillis(HttpHeaders headers) {
+    String retryAfter = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+    if (retryAfter == null) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+    } catch (NumberFormatException e) {
+      try {
+        return Math.max(
+            0, headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis());
+      } catch (IllegalArgumentException iae) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RetryAfterRetryPolicy[maxAttempts="
+        + maxAttempts
+        + ", deadlineMillis="
+        + deadlineMillis
+        + "]";
+  }
+
+  /** Holds the deadline and the delay before the next retry. */
+  @Getter
+  static class RetryAfterContext extends RetryContextSupport {
+    private static final long serialVersionUID = 2871412440839214117L;
+
+    private final long deadline;
+    private long delayMillis;
+
+    RetryAfterContext(RetryContext parent, long deadline) {
+      super(parent);
+      this.deadline = deadline;
+    }
+  }
+}
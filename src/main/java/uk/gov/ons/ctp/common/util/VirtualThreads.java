@@ -0,0 +1,90 @@
+package uk.gov.ons.ctp.common.util;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executors that the library runs blocking calls on.
+ *
+ * <p>Virtual threads are cheap enough to start one per blocking call, so thousands of calls can be
+ * in flight without a large pool of platform threads. They are only available on Java 21 or later,
+ * so they are looked up reflectively, and platform threads are used on earlier versions.
+ */
+public final class VirtualThreads {
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+      lookup(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+  private VirtualThreads() {}
+
+  /**
+   * Whether the running JVM supports virtual threads.
+   *
+   * @return true if virtual threads can be created.
+   */
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * Create an executor for blocking calls.
+   *
+   * <p>With virtual threads each task runs on a new virtual thread. Otherwise platform threads are
+   * only kept while tasks are in flight, and when they are all busy the task is rejected, which
+   * callers handle by running the task themselves.
+   *
+   * @param name the name given to the threads.
+   * @param maxThreads the maximum number of platform threads.
+   * @param virtual true to run tasks on virtual threads, if the JVM supports them.
+   * @return the executor.
+   */
+  public static ExecutorService newExecutor(String name, int maxThreads, boolean virtual) {
+    if (virtual) {
+      if (isAvailable()) {
+        try {
+          Object builder = OF_VIRTUAL.invoke(null);
+          Method nameMethod =
+              OF_VIRTUAL.getReturnType().getMethod("name", String.class, long.class);
+          builder = nameMethod.invoke(builder, name + "-", 0L);
+          ThreadFactory factory =
+              (ThreadFactory) nameMethod.getReturnType().getMethod("factory").invoke(builder);
+          return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+          log.with("name", name).warn("Failed to create virtual thread executor", e);
+        }
+      } else {
+        log.with("name", name)
+            .with("javaVersion", System.getProperty("java.version"))
+            .warn("Virtual threads are not available, so using platform threads");
+      }
+    }
+    return new ThreadPoolExecutor(
+        0,
+        maxThreads,
+        60,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        r -> {
+          Thread thread = new Thread(r, name);
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  private static Method lookup(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
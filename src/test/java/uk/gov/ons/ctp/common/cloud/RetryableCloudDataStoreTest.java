@@ -6,6 +6,7 @@ import static org.junit.Assert.fail;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -13,6 +14,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,6 +28,7 @@ import uk.gov.ons.ctp.common.error.CTPException.Fault;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RetryableCloudDataStoreTest extends CloudTestBase {
+  private static final long SLOW_MILLIS = 5000;
 
   @Mock private CloudDataStore cloudDataStore;
 
@@ -75,6 +78,72 @@ public class RetryableCloudDataStoreTest extends CloudTestBase {
     assertEquals(CASE1, retrievedCase.get());
   }
 
+  @Test
+  public void shouldRetrieveCaseWithHedging() throws Exception {
+    RetryableCloudDataStoreImpl hedgedDataStore = hedgedDataStore();
+    try {
+      when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+          .thenReturn(Optional.of(CASE1));
+      Optional<DummyCase> retrievedCase =
+          hedgedDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+      assertEquals(CASE1, retrievedCase.get());
+    } finally {
+      hedgedDataStore.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldHedgeSlowRetrieval() throws Exception {
+    RetryableCloudDataStoreImpl hedgedDataStore = hedgedDataStore();
+    try {
+      AtomicInteger reads = new AtomicInteger();
+      when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+          .thenAnswer(
+              invocation -> {
+                if (reads.incrementAndGet() == 1) {
+                  Thread.sleep(SLOW_MILLIS);
+                  return Optional.empty();
+                }
+                return Optional.of(CASE1);
+              });
+
+      long start = System.currentTimeMillis();
+      Optional<DummyCase> retrievedCase =
+          hedgedDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+      assertEquals(CASE1, retrievedCase.get());
+      assertEquals(2, reads.get());
+      assertTrue(System.currentTimeMillis() - start < SLOW_MILLIS);
+    } finally {
+      hedgedDataStore.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldKeepInterruptWhenHedgedRetrievalInterrupted() throws Exception {
+    RetryableCloudDataStoreImpl hedgedDataStore = hedgedDataStore();
+    try {
+      // The read may not have started by the time the interrupted caller gives up
+      lenient()
+          .when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+          .thenAnswer(
+              invocation -> {
+                Thread.sleep(SLOW_MILLIS);
+                return Optional.empty();
+              });
+
+      Thread.currentThread().interrupt();
+      try {
+        hedgedDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+        fail();
+      } catch (CTPException e) {
+        assertTrue(e.getCause() instanceof InterruptedException);
+      }
+      assertTrue(Thread.interrupted());
+    } finally {
+      hedgedDataStore.shutdown();
+    }
+  }
+
   @Test
   public void shouldRetrieveNothing() throws Exception {
     when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
@@ -103,4 +172,12 @@ public class RetryableCloudDataStoreTest extends CloudTestBase {
       assertEquals("Retries exhausted for storage of DummyCase: a case", e.getMessage());
     }
   }
+
+  private RetryableCloudDataStoreImpl hedgedDataStore() {
+    HedgeConfig hedgeConfig = new HedgeConfig();
+    hedgeConfig.setEnabled(true);
+    hedgeConfig.setPercentile(0);
+    hedgeConfig.setMaxHedgePercent(100);
+    return new RetryableCloudDataStoreImpl(cloudDataStore, retrier, hedgeConfig);
+  }
 }
@@ -0,0 +1,187 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/** Tests for the BufferedDistributedCounter */
+public class BufferedDistributedCounterTest {
+
+  @Test
+  public void shouldOnlyAddToGlobalValueWhenFlushed() {
+    FakeAtomicLong global = new FakeAtomicLong();
+    global.values.put("events", 10L);
+    try (BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 0)) {
+      counter.increment("events");
+      counter.add("events", 4);
+      assertEquals(15, counter.getValue("events"));
+      assertEquals(Long.valueOf(10), global.values.get("events"));
+      assertEquals(0, global.addAllCalls.get());
+
+      counter.flush();
+      assertEquals(Long.valueOf(15), global.values.get("events"));
+      assertEquals(15, counter.getValue("events"));
+      assertEquals(1, global.addAllCalls.get());
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenThresholdReached() throws Exception {
+    FakeAtomicLong global = new FakeAtomicLong();
+    try (BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 100)) {
+      for (int i = 0; i < 100; i++) {
+        counter.increment("events");
+      }
+      long deadline = System.currentTimeMillis() + 5000;
+      while (global.getValue("events") < 100 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(Long.valueOf(100), global.values.get("events"));
+    }
+  }
+
+  @Test
+  public void shouldKeepDeltaWhenFlushFails() {
+    FakeAtomicLong global = new FakeAtomicLong();
+    try (BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 0)) {
+      counter.add("events", 3);
+      global.failing = true;
+      assertThrows(IllegalStateException.class, counter::flush);
+      assertEquals(3, counter.getValue("events"));
+
+      global.failing = false;
+      counter.flush();
+      assertEquals(Long.valueOf(3), global.values.get("events"));
+    }
+  }
+
+  @Test
+  public void shouldFlushPendingDeltaWhenClosed() {
+    FakeAtomicLong global = new FakeAtomicLong();
+    BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 0);
+    counter.add("events", 2);
+    counter.close();
+    assertEquals(Long.valueOf(2), global.values.get("events"));
+    assertTrue(global.addAllCalls.get() > 0);
+  }
+
+  @Test
+  public void shouldKeepCountingDeltaWhileItIsFlushed() throws Exception {
+    FakeAtomicLong global = new FakeAtomicLong();
+    global.values.put("events", 10L);
+    global.inAddAll = new CountDownLatch(1);
+    global.releaseAddAll = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 0)) {
+      counter.add("events", 5);
+      assertEquals(15, counter.getValue("events"));
+
+      Future<?> flush = executor.submit(counter::flush);
+      assertTrue(global.inAddAll.await(5, TimeUnit.SECONDS));
+      // The delta has left pending, but the reply hasn't updated the global value yet
+      assertEquals(15, counter.getValue("events"));
+
+      global.releaseAddAll.countDown();
+      flush.get(5, TimeUnit.SECONDS);
+      assertEquals(15, counter.getValue("events"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldOnlyFlushCountersUsedSinceLastFlush() {
+    FakeAtomicLong global = new FakeAtomicLong();
+    try (BufferedDistributedCounter counter = new BufferedDistributedCounter(global, 60000, 0)) {
+      counter.add("events", 2);
+      counter.add("errors", 1);
+      counter.flush();
+      assertEquals(Map.of("events", 2L, "errors", 1L), global.lastDeltas);
+
+      counter.add("events", 1);
+      counter.flush();
+      assertEquals(Map.of("events", 1L), global.lastDeltas);
+
+      // An idle counter reads its global value again
+      global.values.put("errors", 7L);
+      assertEquals(7, counter.getValue("errors"));
+    }
+  }
+
+  /** In-memory stand in for the distributed values. */
+  private static class FakeAtomicLong implements DistributedAtomicLong {
+    private final Map<String, Long> values = new ConcurrentHashMap<>();
+    private final AtomicInteger addAllCalls = new AtomicInteger();
+    private volatile boolean failing;
+    private volatile Map<String, Long> lastDeltas;
+    private volatile CountDownLatch inAddAll;
+    private volatile CountDownLatch releaseAddAll;
+
+    @Override
+    public long getValue(String key) {
+      return values.getOrDefault(key, 0L);
+    }
+
+    @Override
+    public void setValue(String key, long setValue) {
+      values.put(key, setValue);
+    }
+
+    @Override
+    public long incrementAndGet(String key) {
+      return values.merge(key, 1L, Long::sum) - 1;
+    }
+
+    @Override
+    public long decrementAndGet(String key) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Long> getValues(Collection<String> keys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Long> incrementAll(Collection<String> keys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Long> addAll(Map<String, Long> deltas) {
+      if (failing) {
+        throw new IllegalStateException("Redis unavailable");
+      }
+      lastDeltas = new LinkedHashMap<>(deltas);
+      if (inAddAll != null) {
+        inAddAll.countDown();
+        try {
+          releaseAddAll.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      Map<String, Long> results = new LinkedHashMap<>();
+      deltas.forEach((key, delta) -> results.put(key, values.merge(key, delta, Long::sum)));
+      addAllCalls.incrementAndGet();
+      return results;
+    }
+
+    @Override
+    public boolean delete(String key) {
+      return values.remove(key) != null;
+    }
+  }
+}
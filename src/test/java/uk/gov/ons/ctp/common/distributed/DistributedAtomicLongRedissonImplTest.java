@@ -0,0 +1,190 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RScript.Mode;
+import org.redisson.api.RScript.ReturnType;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.misc.RedissonPromise;
+
+/**
+ * Tests for the DistributedAtomicLongRedissonImpl
+ *
+ * <p>NOTE that this is a UNIT test and NOT an INTEGRATION test. It checks that each operation is a
+ * single script call, and that the multi-key and sharded operations share one batch, but not the
+ * scripts.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DistributedAtomicLongRedissonImplTest {
+
+  @Mock private RedissonClient redissonClient;
+  @Mock private RScript script;
+
+  @Test
+  public void testIncrementIsOneScriptCall() {
+    when(redissonClient.getScript(LongCodec.INSTANCE)).thenReturn(script);
+    when(script.eval(
+            eq(Mode.READ_WRITE),
+            anyString(),
+            eq(ReturnType.INTEGER),
+            eq(Collections.singletonList("test-root:global:counter")),
+            eq(60L)))
+        .thenReturn(4L);
+
+    DistributedAtomicLongRedissonImpl impl =
+        new DistributedAtomicLongRedissonImpl("test-root", redissonClient, 60);
+    assertEquals(4L, impl.incrementAndGet("counter"));
+
+    verify(redissonClient).getScript(LongCodec.INSTANCE);
+    verifyNoMoreInteractions(redissonClient);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testIncrementAllIsOneBatch() {
+    RBatch batch = mock(RBatch.class);
+    when(redissonClient.createBatch(any(BatchOptions.class))).thenReturn(batch);
+    when(batch.getScript(LongCodec.INSTANCE)).thenReturn(script);
+    RFuture<Object> first = mock(RFuture.class);
+    RFuture<Object> second = mock(RFuture.class);
+    when(first.getNow()).thenReturn(7L);
+    when(second.getNow()).thenReturn(0L);
+    when(script.evalAsync(
+            eq(Mode.READ_WRITE), anyString(), eq(ReturnType.INTEGER), any(List.class), eq(0L)))
+        .thenReturn(first, second);
+
+    DistributedAtomicLongRedissonImpl impl =
+        new DistributedAtomicLongRedissonImpl("test-root", redissonClient, 0);
+    Map<String, Long> values = impl.incrementAll(Arrays.asList("a", "b"));
+
+    assertEquals(Arrays.asList("a", "b"), List.copyOf(values.keySet()));
+    assertEquals(Long.valueOf(7), values.get("a"));
+    assertEquals(Long.valueOf(0), values.get("b"));
+    verify(script)
+        .evalAsync(
+            eq(Mode.READ_WRITE),
+            anyString(),
+            eq(ReturnType.INTEGER),
+            eq(Collections.singletonList("test-root:global:a")),
+            eq(0L));
+    verify(batch, times(1)).execute();
+    verify(redissonClient, times(1)).createBatch(any(BatchOptions.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testShardedIncrementReadsAllShardsInOneBatch() {
+    RBatch batch = mock(RBatch.class);
+    when(redissonClient.createBatch(any(BatchOptions.class))).thenReturn(batch);
+    when(batch.getScript(LongCodec.INSTANCE)).thenReturn(script);
+    RFuture<Object> shard = mock(RFuture.class);
+    when(shard.getNow()).thenReturn(5L);
+    when(script.evalAsync(
+            eq(Mode.READ_WRITE), anyString(), eq(ReturnType.INTEGER), any(List.class), eq(60L)))
+        .thenReturn(shard);
+
+    DistributedAtomicLongRedissonImpl impl =
+        new DistributedAtomicLongRedissonImpl("test-root", redissonClient, 60, 4, true);
+    assertEquals(20L, impl.incrementAndGet("counter"));
+
+    for (int i = 0; i < 4; i++) {
+      verify(script)
+          .evalAsync(
+              eq(Mode.READ_WRITE),
+              anyString(),
+              eq(ReturnType.INTEGER),
+              eq(Collections.singletonList("test-root:global:{counter}:" + i)),
+              eq(60L));
+    }
+    verify(batch, times(1)).execute();
+    verify(redissonClient, times(1)).createBatch(any(BatchOptions.class));
+    verifyNoMoreInteractions(redissonClient);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testShardedDecrementRetriesWhenShardDrained() {
+    RBatch batch = mock(RBatch.class);
+    when(redissonClient.createBatch(any(BatchOptions.class))).thenReturn(batch);
+    when(batch.getScript(LongCodec.INSTANCE)).thenReturn(script);
+    RFuture<Object> three = shardValue(3L);
+    RFuture<Object> one = shardValue(1L);
+    RFuture<Object> zero = shardValue(0L);
+    when(script.evalAsync(
+            eq(Mode.READ_WRITE), anyString(), eq(ReturnType.INTEGER), any(List.class), eq(0L)))
+        .thenReturn(three, one, zero, one);
+    RScript decrementScript = mock(RScript.class);
+    when(redissonClient.getScript(LongCodec.INSTANCE)).thenReturn(decrementScript);
+    // The largest shard is drained by another instance before it can be decremented
+    when(decrementScript.eval(
+            eq(Mode.READ_WRITE),
+            anyString(),
+            eq(ReturnType.INTEGER),
+            eq(Collections.singletonList("test-root:global:counter:0")),
+            eq(0L)))
+        .thenReturn(0L);
+    when(decrementScript.eval(
+            eq(Mode.READ_WRITE),
+            anyString(),
+            eq(ReturnType.INTEGER),
+            eq(Collections.singletonList("test-root:global:counter:1")),
+            eq(0L)))
+        .thenReturn(1L);
+
+    DistributedAtomicLongRedissonImpl impl =
+        new DistributedAtomicLongRedissonImpl("test-root", redissonClient, 0, 2, false);
+    assertEquals(1L, impl.decrementAndGet("counter"));
+    verify(batch, times(2)).execute();
+  }
+
+  @Test
+  public void testIncrementAsyncDoesNotBlock() throws Exception {
+    when(redissonClient.getScript(LongCodec.INSTANCE)).thenReturn(script);
+    RedissonPromise<Object> promise = new RedissonPromise<>();
+    when(script.evalAsync(
+            eq(Mode.READ_WRITE),
+            anyString(),
+            eq(ReturnType.INTEGER),
+            eq(Collections.singletonList("test-root:global:counter")),
+            eq(60L)))
+        .thenReturn(promise);
+
+    DistributedAtomicLongRedissonImpl impl =
+        new DistributedAtomicLongRedissonImpl("test-root", redissonClient, 60);
+    CompletableFuture<Long> result = impl.incrementAndGetAsync("counter");
+    assertFalse(result.isDone());
+
+    promise.trySuccess(4L);
+    assertEquals(Long.valueOf(4), result.get());
+  }
+
+  @SuppressWarnings("unchecked")
+  private RFuture<Object> shardValue(long value) {
+    RFuture<Object> future = mock(RFuture.class);
+    when(future.getNow()).thenReturn(value);
+    return future;
+  }
+}
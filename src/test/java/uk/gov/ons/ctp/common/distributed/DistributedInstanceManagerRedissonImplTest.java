@@ -0,0 +1,61 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+/** Tests for the async methods of the DistributedInstanceManagerRedissonImpl */
+@RunWith(MockitoJUnitRunner.class)
+public class DistributedInstanceManagerRedissonImplTest {
+
+  @Mock private RedissonClient redissonClient;
+  @Mock private RAtomicLong instanceCount;
+
+  private DistributedInstanceManagerRedissonImpl impl;
+
+  @Before
+  public void setUp() {
+    when(redissonClient.getAtomicLong("root:global:fred")).thenReturn(instanceCount);
+    impl = new DistributedInstanceManagerRedissonImpl("root", redissonClient);
+  }
+
+  @Test
+  public void testGetInstanceCountAsync() throws Exception {
+    when(instanceCount.getAsync()).thenReturn(RedissonPromise.newSucceededFuture(4L));
+
+    assertEquals(Long.valueOf(4), impl.getInstanceCountAsync("fred").get());
+  }
+
+  @Test
+  public void testIncrementInstanceCountAsync() throws Exception {
+    when(instanceCount.getAndIncrementAsync()).thenReturn(RedissonPromise.newSucceededFuture(4L));
+
+    assertEquals(Long.valueOf(4), impl.incrementInstanceCountAsync("fred").get());
+  }
+
+  @Test
+  public void testDecrementInstanceCountAsync() throws Exception {
+    when(instanceCount.getAsync()).thenReturn(RedissonPromise.newSucceededFuture(4L));
+    when(instanceCount.getAndDecrementAsync()).thenReturn(RedissonPromise.newSucceededFuture(4L));
+
+    assertEquals(Long.valueOf(4), impl.decrementInstanceCountAsync("fred").get());
+  }
+
+  @Test
+  public void testDecrementInstanceCountAsyncStopsAtZero() throws Exception {
+    when(instanceCount.getAsync()).thenReturn(RedissonPromise.newSucceededFuture(0L));
+
+    assertEquals(Long.valueOf(0), impl.decrementInstanceCountAsync("fred").get());
+    verify(instanceCount, never()).getAndDecrementAsync();
+  }
+}
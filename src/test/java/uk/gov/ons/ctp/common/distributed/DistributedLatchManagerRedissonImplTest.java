@@ -0,0 +1,109 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.redisson.api.RCountDownLatch;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.misc.RedissonPromise;
+
+/** Tests for the async await of the DistributedLatchManagerRedissonImpl */
+@RunWith(MockitoJUnitRunner.class)
+public class DistributedLatchManagerRedissonImplTest {
+  private static final String CHANNEL = "redisson_countdownlatch__channel__{root:global:fred}";
+
+  @Mock private RedissonClient redissonClient;
+  @Mock private RCountDownLatch latch;
+  @Mock private RTopic topic;
+
+  @Before
+  public void setUp() {
+    when(redissonClient.getCountDownLatch("root:global:fred")).thenReturn(latch);
+    when(redissonClient.getTopic(CHANNEL, LongCodec.INSTANCE)).thenReturn(topic);
+    when(topic.addListenerAsync(eq(Long.class), any()))
+        .thenReturn(RedissonPromise.newSucceededFuture(3));
+    when(topic.removeListenerAsync(3)).thenReturn(RedissonPromise.newSucceededFuture(null));
+  }
+
+  @Test
+  public void shouldCompleteWhenCountAlreadyZero() throws Exception {
+    when(latch.getCountAsync()).thenReturn(RedissonPromise.newSucceededFuture(0L));
+
+    assertTrue(manager(10).awaitCountDownLatchAsync("fred").get(5, TimeUnit.SECONDS));
+    verify(topic, timeout(1000)).removeListenerAsync(3);
+  }
+
+  @Test
+  public void shouldTimeOutWhenCountNotZero() throws Exception {
+    when(latch.getCountAsync()).thenReturn(RedissonPromise.newSucceededFuture(2L));
+
+    assertFalse(manager(0).awaitCountDownLatchAsync("fred").get(5, TimeUnit.SECONDS));
+    verify(topic, timeout(1000)).removeListenerAsync(3);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldCheckCountWhenMessageArrives() throws Exception {
+    when(latch.getCountAsync())
+        .thenReturn(RedissonPromise.newSucceededFuture(1L))
+        .thenReturn(RedissonPromise.newSucceededFuture(0L));
+
+    CompletableFuture<Boolean> result = manager(10).awaitCountDownLatchAsync("fred");
+    ArgumentCaptor<MessageListener<Long>> listener = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addListenerAsync(eq(Long.class), listener.capture());
+    assertFalse(result.isDone());
+
+    // Sooner than the poll would check again
+    listener.getValue().onMessage(CHANNEL, 0L);
+    assertTrue(result.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldFailWhenCountCantBeRead() {
+    IllegalStateException failure = new IllegalStateException("Redis unavailable");
+    when(latch.getCountAsync()).thenReturn(RedissonPromise.newFailedFuture(failure));
+
+    CompletableFuture<Boolean> result = manager(10).awaitCountDownLatchAsync("fred");
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    assertEquals(failure, e.getCause());
+  }
+
+  @Test
+  public void shouldFailWhenSubscriptionFails() {
+    IllegalStateException failure = new IllegalStateException("Redis unavailable");
+    RTopic failingTopic = mock(RTopic.class);
+    when(redissonClient.getTopic(CHANNEL, LongCodec.INSTANCE)).thenReturn(failingTopic);
+    when(failingTopic.addListenerAsync(eq(Long.class), any()))
+        .thenReturn(RedissonPromise.newFailedFuture(failure));
+
+    CompletableFuture<Boolean> result = manager(10).awaitCountDownLatchAsync("fred");
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    assertEquals(failure, e.getCause());
+  }
+
+  private DistributedLatchManagerRedissonImpl manager(int timeToWait) {
+    return new DistributedLatchManagerRedissonImpl("root", redissonClient, timeToWait);
+  }
+}
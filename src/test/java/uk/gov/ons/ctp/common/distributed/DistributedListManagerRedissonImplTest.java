@@ -0,0 +1,109 @@
+package uk.gov.ons.ctp.common.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RKeys;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+/** Tests for the async methods of the DistributedListManagerRedissonImpl */
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.class)
+public class DistributedListManagerRedissonImplTest {
+
+  @Mock private RedissonClient redissonClient;
+  @Mock private RLock lock;
+
+  private DistributedListManagerRedissonImpl<String> impl;
+
+  @Before
+  public void setUp() {
+    when(redissonClient.getFairLock("root:global:lock")).thenReturn(lock);
+    when(lock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+        .thenReturn(RedissonPromise.newSucceededFuture(true));
+    when(lock.unlockAsync(anyLong())).thenReturn(RedissonPromise.newSucceededFuture(null));
+    impl = new DistributedListManagerRedissonImpl<>("root", redissonClient, 5, 10);
+  }
+
+  @Test
+  public void testFindListAsyncScansForLists() throws Exception {
+    RKeys keys = mock(RKeys.class);
+    when(redissonClient.getKeys()).thenReturn(keys);
+    when(keys.getKeysByPattern("root:*:fred")).thenReturn(List.of("root:a:fred", "root:b:fred"));
+    RBatch batch = mock(RBatch.class);
+    when(redissonClient.createBatch(any(BatchOptions.class))).thenReturn(batch);
+    RBucketAsync<Object> first = bucket(List.of("one", "two"));
+    RBucketAsync<Object> second = bucket(List.of("three"));
+    when(batch.getBucket("root:a:fred")).thenReturn(first);
+    when(batch.getBucket("root:b:fred")).thenReturn(second);
+    when(batch.executeAsync()).thenReturn(RedissonPromise.newSucceededFuture(null));
+
+    assertEquals(List.of("one", "two", "three"), impl.findListAsync("fred").get());
+    verify(keys, never()).findKeysByPatternAsync(anyString());
+    verify(lock).unlockAsync(anyLong());
+  }
+
+  @Test
+  public void testContainerLockReleasedWhenOperationFails() {
+    IllegalStateException failure = new IllegalStateException("Redis unavailable");
+    RBucket<Object> bucket = mock(RBucket.class);
+    when(redissonClient.getBucket(anyString())).thenReturn(bucket);
+    when(bucket.deleteAsync()).thenReturn(RedissonPromise.newFailedFuture(failure));
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> impl.deleteListAsync("fred").get());
+    assertEquals(failure, e.getCause());
+    verify(lock).unlockAsync(anyLong());
+  }
+
+  @Test
+  public void testContainerLockReleasedWhenOperationThrows() {
+    IllegalStateException failure = new IllegalStateException("Redis unavailable");
+    when(redissonClient.getBucket(anyString())).thenThrow(failure);
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> impl.saveListAsync("fred", List.of()).get());
+    assertEquals(failure, e.getCause());
+    verify(lock).unlockAsync(anyLong());
+  }
+
+  @Test
+  public void testFailsWhenContainerLockNotObtained() {
+    when(lock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+        .thenReturn(RedissonPromise.newSucceededFuture(false));
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> impl.deleteListAsync("fred").get());
+    assertTrue(e.getCause() instanceof LockingException);
+    verify(lock, never()).unlockAsync(anyLong());
+    verify(redissonClient, never()).getBucket(anyString());
+  }
+
+  private RBucketAsync<Object> bucket(List<String> contents) {
+    RBucketAsync<Object> bucket = mock(RBucketAsync.class);
+    when(bucket.getAsync()).thenReturn(RedissonPromise.newSucceededFuture(contents));
+    return bucket;
+  }
+}
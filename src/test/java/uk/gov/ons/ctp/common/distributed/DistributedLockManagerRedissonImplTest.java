@@ -11,6 +11,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
 
 /**
  * Tests for the DistributedLockManagerRedissonImpl
@@ -90,4 +91,24 @@ public class DistributedLockManagerRedissonImplTest {
         new DistributedLockManagerRedissonImpl("root", redissonClient, 10);
     Assert.assertFalse(impl.lock("fred"));
   }
+
+  /**
+   * Test
+   *
+   * @throws Exception oops
+   */
+  @Test
+  public void testLockAsyncTakesLockForOwner() throws Exception {
+    RLock mockLock = Mockito.mock(RLock.class);
+    Mockito.when(redissonClient.getFairLock("root:global:fred")).thenReturn(mockLock);
+    Mockito.when(mockLock.tryLockAsync(0, 10, TimeUnit.SECONDS, -7L))
+        .thenReturn(RedissonPromise.newSucceededFuture(true));
+    Mockito.when(mockLock.unlockAsync(-7L)).thenReturn(RedissonPromise.newSucceededFuture(null));
+
+    DistributedLockManagerRedissonImpl impl =
+        new DistributedLockManagerRedissonImpl("root", redissonClient, 10);
+    Assert.assertTrue(impl.lockAsync("fred", -7L).get());
+    impl.unlockAsync("fred", -7L).get();
+    Mockito.verify(mockLock).unlockAsync(-7L);
+  }
 }
@@ -0,0 +1,123 @@
+package uk.gov.ons.ctp.common.hedge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+
+public class HedgerTest {
+  private static final long SLOW_MILLIS = 5000;
+
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldNotHedgeFastCall() throws Exception {
+    Hedger hedger = new Hedger(executor, 95, 1000, 100);
+    warmUp(hedger);
+
+    AtomicInteger invocations = new AtomicInteger();
+    String result = hedger.call(() -> "fast-" + invocations.incrementAndGet());
+    assertEquals("fast-1", result);
+    assertEquals(1, invocations.get());
+  }
+
+  @Test
+  public void shouldHedgeSlowCall() throws Exception {
+    Hedger hedger = new Hedger(executor, 95, 1, 100);
+    warmUp(hedger);
+
+    AtomicInteger invocations = new AtomicInteger();
+    long start = System.currentTimeMillis();
+    String result = hedger.call(slowThenFast(invocations));
+    assertEquals("hedge", result);
+    assertEquals(2, invocations.get());
+    assertTrue(System.currentTimeMillis() - start < SLOW_MILLIS);
+  }
+
+  @Test
+  public void shouldNotHedgeWhenOverBudget() throws Exception {
+    Hedger hedger = new Hedger(executor, 95, 1, 0);
+    warmUp(hedger);
+
+    AtomicInteger invocations = new AtomicInteger();
+    Callable<String> call = () -> invocations.incrementAndGet() == 1 ? "primary" : "hedge";
+    assertEquals("primary", hedger.call(delayed(call, 50)));
+    assertEquals(1, invocations.get());
+  }
+
+  @Test
+  public void shouldNotHedgeBeforeEnoughLatenciesRecorded() throws Exception {
+    Hedger hedger = new Hedger(executor, 95, 1, 100);
+
+    AtomicInteger invocations = new AtomicInteger();
+    Callable<String> call = () -> invocations.incrementAndGet() == 1 ? "primary" : "hedge";
+    assertEquals("primary", hedger.call(delayed(call, 50)));
+    assertEquals(1, invocations.get());
+  }
+
+  @Test
+  public void shouldHedgeAfterFixedDelayWithoutPercentile() throws Exception {
+    Hedger hedger = new Hedger(executor, 0, 10, 100);
+    warmUp(hedger);
+
+    AtomicInteger invocations = new AtomicInteger();
+    assertEquals("hedge", hedger.call(slowThenFast(invocations)));
+    assertEquals(2, invocations.get());
+  }
+
+  @Test
+  public void shouldRethrowFailure() throws Exception {
+    Hedger hedger = new Hedger(executor, 95, 1, 100);
+    try {
+      hedger.call(
+          () -> {
+            throw new CTPException(Fault.SYSTEM_ERROR, "argh");
+          });
+      fail();
+    } catch (CTPException e) {
+      assertEquals("argh", e.getMessage());
+    }
+  }
+
+  private void warmUp(Hedger hedger) throws Exception {
+    for (int i = 0; i < 100; i++) {
+      hedger.call(() -> "warm");
+    }
+  }
+
+  private Callable<String> slowThenFast(AtomicInteger invocations) {
+    return () -> {
+      if (invocations.incrementAndGet() == 1) {
+        Thread.sleep(SLOW_MILLIS);
+        return "primary";
+      }
+      return "hedge";
+    };
+  }
+
+  private Callable<String> delayed(Callable<String> call, long millis) {
+    return () -> {
+      Thread.sleep(millis);
+      return call.call();
+    };
+  }
+}
@@ -0,0 +1,226 @@
+package uk.gov.ons.ctp.common.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Test the AsyncRestClient class against a local http server */
+public class AsyncRestClientTest {
+
+  private HttpServer server;
+  private int responseStatus;
+  private String responseBody;
+  private AtomicReference<String> requestMethod = new AtomicReference<>();
+  private AtomicReference<String> requestBody = new AtomicReference<>();
+
+  @Before
+  public void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::respond);
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testGetResourceOk() throws Exception {
+    respondWith(200, "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}");
+
+    FakeDTO fakeDTO = client().getResource("/hotels/{hotelId}", FakeDTO.class, "42").get();
+    assertEquals("blonde", fakeDTO.getHairColor());
+    assertEquals(Integer.valueOf(8), fakeDTO.getShoeSize());
+    assertEquals("GET", requestMethod.get());
+  }
+
+  @Test
+  public void testGetResourcesOk() throws Exception {
+    respondWith(
+        200,
+        "[{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"},"
+            + "{ \"hairColor\" : \"brown\", \"shoeSize\" : \"12\"}]");
+
+    List<FakeDTO> fakeDTOs = client().getResources("/hotels", FakeDTO[].class).get();
+    assertEquals(2, fakeDTOs.size());
+    assertEquals("brown", fakeDTOs.get(1).getHairColor());
+  }
+
+  @Test
+  public void testPostResourceOk() throws Exception {
+    respondWith(200, "ABC123");
+
+    FakeDTO fakeDTO = new FakeDTO("blue", 52);
+    String response = client().postResource("/hotels/{hotelId}", fakeDTO, String.class, "42").get();
+    assertEquals("ABC123", response);
+    assertEquals("POST", requestMethod.get());
+    assertTrue(requestBody.get(), requestBody.get().contains("\"hairColor\":\"blue\""));
+  }
+
+  @Test
+  public void testPutResourceOk() throws Exception {
+    respondWith(200, "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}");
+
+    FakeDTO fakeDTO = new FakeDTO("blue", 52);
+    client().putResource("/hotels/{hotelId}", fakeDTO, FakeDTO.class, "42").get();
+    assertEquals("PUT", requestMethod.get());
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    respondWith(200, "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}");
+
+    AsyncRestClient client = client();
+    CompletableFuture<FakeDTO> first = client.getResource("/hotels/1", FakeDTO.class);
+    CompletableFuture<FakeDTO> second = client.getResource("/hotels/2", FakeDTO.class);
+    CompletableFuture.allOf(first, second).get();
+    assertEquals("blonde", first.get().getHairColor());
+    assertEquals("blonde", second.get().getHairColor());
+  }
+
+  @Test
+  public void testPostResourceNullResponse() throws Exception {
+    respondWith(204, null);
+
+    ResponseStatusException e =
+        failure(client().postResource("/hotels", new FakeDTO("blue", 52), String.class));
+    assertTrue(e.getMessage(), e.getMessage().contains("No response"));
+  }
+
+  @Test
+  public void testGetResourceNotFound() throws Exception {
+    respondWith(404, "not here");
+
+    ResponseStatusException e = failure(client().getResource("/hotels/42", FakeDTO.class));
+    assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    assertEquals("not here", e.getReason());
+    assertEquals(HttpStatus.NOT_FOUND, ((HttpStatusCodeException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  public void testGetResourceFailsWithMappedError() throws Exception {
+    respondWith(409, null);
+
+    AsyncRestClient client =
+        new AsyncRestClient(
+            config(),
+            Map.of(HttpStatus.CONFLICT, HttpStatus.I_AM_A_TEAPOT),
+            HttpStatus.INTERNAL_SERVER_ERROR);
+    ResponseStatusException e = failure(client.getResource("/hotels/42", FakeDTO.class));
+    assertEquals(HttpStatus.I_AM_A_TEAPOT, e.getStatus());
+    assertEquals(HttpStatus.CONFLICT, ((HttpStatusCodeException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  public void testGetResourceFailsWithUnmappedError() throws Exception {
+    respondWith(503, null);
+
+    ResponseStatusException e = failure(client().getResource("/hotels/42", FakeDTO.class));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+    assertEquals(
+        HttpStatus.SERVICE_UNAVAILABLE, ((HttpStatusCodeException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  public void testGetResourceFailsWithInvalidJsonResponse() throws Exception {
+    respondWith(200, "{ \"invalid-json\" ! payload %^#%%%! }");
+
+    ResponseStatusException e = failure(client().getResource("/hotels/42", FakeDTO.class));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+  }
+
+  @Test
+  public void testFailureNotWrappedInCompletionException() throws Exception {
+    respondWith(404, "not here");
+
+    Throwable failure = client().getResource("/hotels/42", FakeDTO.class).handle((r, t) -> t).get();
+    assertTrue(failure instanceof ResponseStatusException);
+  }
+
+  @Test
+  public void testConnectionFailureNotWrappedInCompletionException() throws Exception {
+    AsyncRestClient client = client();
+    server.stop(0);
+
+    Throwable failure = client.getResource("/hotels/42", FakeDTO.class).handle((r, t) -> t).get();
+    assertTrue(failure instanceof ResponseStatusException);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, ((ResponseStatusException) failure).getStatus());
+  }
+
+  @Test
+  public void testRestrictedHeaderFailsFuture() throws Exception {
+    CompletableFuture<FakeDTO> future =
+        client().getResource("/hotels/42", FakeDTO.class, Map.of("Host", "elsewhere"), null);
+
+    ResponseStatusException e = failure(future);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+    assertEquals(null, requestMethod.get());
+  }
+
+  private AsyncRestClient client() throws Exception {
+    return new AsyncRestClient(config());
+  }
+
+  private RestClientConfig config() {
+    return RestClientConfig.builder()
+        .scheme("http")
+        .host("localhost")
+        .port(Integer.toString(server.getAddress().getPort()))
+        .build();
+  }
+
+  private ResponseStatusException failure(CompletableFuture<?> future) throws Exception {
+    try {
+      future.get();
+      fail();
+      return null;
+    } catch (ExecutionException e) {
+      return (ResponseStatusException) e.getCause();
+    }
+  }
+
+  private void respondWith(int status, String body) {
+    this.responseStatus = status;
+    this.responseBody = body;
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    requestMethod.set(exchange.getRequestMethod());
+    requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+    if (responseBody == null) {
+      exchange.sendResponseHeaders(responseStatus, -1);
+    } else {
+      byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+      String contentType =
+          responseBody.startsWith("{") || responseBody.startsWith("[")
+              ? "application/json"
+              : "text/plain";
+      exchange.getResponseHeaders().set("Content-Type", contentType);
+      exchange.sendResponseHeaders(responseStatus, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+    exchange.close();
+  }
+}
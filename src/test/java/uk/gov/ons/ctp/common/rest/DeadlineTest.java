@@ -0,0 +1,81 @@
+package uk.gov.ons.ctp.common.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.FilterChain;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/** Test the Deadline, and how it is passed between services */
+public class DeadlineTest {
+
+  @Test
+  public void shouldRestorePreviousDeadlineWhenScopeClosed() {
+    Deadline outer = Deadline.after(1000);
+    try (Deadline.Scope outerScope = outer.attach()) {
+      try (Deadline.Scope innerScope = Deadline.after(100).attach()) {
+        assertTrue(Deadline.current().remainingMillis() <= 100);
+      }
+      assertSame(outer, Deadline.current());
+    }
+    assertNull(Deadline.current());
+  }
+
+  @Test
+  public void shouldKeepSoonerDeadlineWhenNested() {
+    Deadline outer = Deadline.after(100);
+    try (Deadline.Scope outerScope = outer.attach()) {
+      try (Deadline.Scope innerScope = Deadline.after(60000).attach()) {
+        assertSame(outer, Deadline.current());
+      }
+    }
+  }
+
+  @Test
+  public void shouldExpire() {
+    assertTrue(Deadline.after(0).isExpired());
+    assertFalse(Deadline.after(60000).isExpired());
+  }
+
+  @Test
+  public void shouldSendRemainingTimeInHeader() throws Exception {
+    RestClientRequestFactory factory =
+        new RestClientRequestFactory(HttpClients.createDefault(), RequestConfig.DEFAULT);
+    URI uri = URI.create("http://localhost:8080/hotels/42");
+
+    assertNull(factory.createRequest(uri, HttpMethod.GET).getHeaders().get(Deadline.HEADER));
+    try (Deadline.Scope scope = Deadline.after(5000).attach()) {
+      ClientHttpRequest request = factory.createRequest(uri, HttpMethod.GET);
+      long remaining = Long.parseLong(request.getHeaders().getFirst(Deadline.HEADER));
+      assertTrue(remaining > 0 && remaining <= 5000);
+    }
+  }
+
+  @Test
+  public void shouldAttachDeadlineFromHeaderWhileHandlingRequest() throws Exception {
+    AtomicReference<Deadline> seen = new AtomicReference<>();
+    FilterChain chain = (request, response) -> seen.set(Deadline.current());
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(Deadline.HEADER, "5000");
+    new DeadlineFilter().doFilter(request, new MockHttpServletResponse(), chain);
+    long remaining = seen.get().remainingMillis();
+    assertTrue(remaining > 0 && remaining <= 5000);
+    assertNull(Deadline.current());
+
+    request = new MockHttpServletRequest();
+    request.addHeader(Deadline.HEADER, "soon");
+    new DeadlineFilter().doFilter(request, new MockHttpServletResponse(), chain);
+    assertNull(seen.get());
+  }
+}
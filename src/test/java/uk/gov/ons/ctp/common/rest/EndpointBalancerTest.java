@@ -0,0 +1,84 @@
+package uk.gov.ons.ctp.common.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.List;
+import org.junit.Test;
+import uk.gov.ons.ctp.common.rest.EndpointBalancer.Endpoint;
+import uk.gov.ons.ctp.common.rest.RestClientConfig.LoadBalancing;
+
+/** Test the choice of endpoints by the EndpointBalancer */
+public class EndpointBalancerTest {
+  private static final String HOST_A = "http://hosta:8080";
+  private static final String HOST_B = "http://hostb:8080";
+  private static final String HOST_C = "http://hostc:8080";
+
+  @Test
+  public void shouldUseHostAndPortWithoutEndpoints() {
+    EndpointBalancer balancer = new EndpointBalancer(RestClientConfig.builder().build());
+    assertEquals("http://localhost:8080", call(balancer, false));
+  }
+
+  @Test
+  public void shouldChooseEndpointsInTurn() {
+    EndpointBalancer balancer = balancer(LoadBalancing.ROUND_ROBIN, 5);
+    assertEquals(HOST_A, call(balancer, false));
+    assertEquals(HOST_B, call(balancer, false));
+    assertEquals(HOST_C, call(balancer, false));
+    assertEquals(HOST_A, call(balancer, false));
+  }
+
+  @Test
+  public void shouldChooseEndpointWithFewestOutstandingCalls() {
+    EndpointBalancer balancer = balancer(LoadBalancing.LEAST_OUTSTANDING, 5);
+    Endpoint first = balancer.acquire();
+    Endpoint second = balancer.acquire();
+    balancer.release(first, false);
+
+    // Only the second endpoint has a call in progress, so it must not be chosen
+    for (int i = 0; i < 6; i++) {
+      Endpoint endpoint = balancer.acquire();
+      balancer.release(endpoint, false);
+      assertNotSame(second, endpoint);
+    }
+  }
+
+  @Test
+  public void shouldEjectEndpointAfterConsecutiveFailures() {
+    EndpointBalancer balancer = balancer(LoadBalancing.ROUND_ROBIN, 2);
+    assertEquals(HOST_A, call(balancer, true));
+    assertEquals(HOST_B, call(balancer, false));
+    assertEquals(HOST_C, call(balancer, false));
+    assertEquals(HOST_A, call(balancer, true));
+
+    for (int i = 0; i < 4; i++) {
+      assertNotEquals(HOST_A, call(balancer, false));
+    }
+  }
+
+  @Test
+  public void shouldUseEjectedEndpointsWhenAllAreEjected() {
+    EndpointBalancer balancer = balancer(LoadBalancing.ROUND_ROBIN, 1);
+    call(balancer, true);
+    call(balancer, true);
+    call(balancer, true);
+    assertEquals(HOST_A, call(balancer, false));
+  }
+
+  private EndpointBalancer balancer(LoadBalancing loadBalancing, int failures) {
+    return new EndpointBalancer(
+        RestClientConfig.builder()
+            .endpoints(List.of("hosta:8080", "hostb:8080", "hostc:8080"))
+            .loadBalancing(loadBalancing)
+            .outlierConsecutiveFailures(failures)
+            .build());
+  }
+
+  private String call(EndpointBalancer balancer, boolean failed) {
+    Endpoint endpoint = balancer.acquire();
+    balancer.release(endpoint, failed);
+    return endpoint.getBaseUrl();
+  }
+}
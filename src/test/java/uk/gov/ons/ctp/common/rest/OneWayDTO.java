@@ -0,0 +1,17 @@
+package uk.gov.ons.ctp.common.rest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A fake DTO whose JSON mapping differs between reading and writing, for the RestClientTest */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OneWayDTO {
+  private String hairColor;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  private String password;
+}
@@ -0,0 +1,66 @@
+package uk.gov.ons.ctp.common.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/** Test that PathTemplate expands paths in the same way as UriComponentsBuilder */
+public class PathTemplateTest {
+  private static final String BASE_URL = "http://localhost:8080";
+
+  @Test
+  public void shouldExpandPathWithoutParams() {
+    assertSameAsBuilder("/hotels", null);
+    assertSameAsBuilder("hotels", null);
+    assertSameAsBuilder("", null);
+  }
+
+  @Test
+  public void shouldExpandPathParamsInOrder() {
+    assertSameAsBuilder("/hotels/{hotelId}/rooms/{roomId}", null, "42", 7);
+    assertSameAsBuilder("/hotels/{hotelId}/rooms/{roomId:[0-9]+}", null, "42", 7);
+  }
+
+  @Test
+  public void shouldEncodePathParams() {
+    assertSameAsBuilder("/addresses/{postcode}", null, "SO15 1AA");
+    assertSameAsBuilder("/addresses/{postcode}", null, "a/b?c#d%e");
+    assertSameAsBuilder("/cases/{id}", null, (Object) null);
+  }
+
+  @Test
+  public void shouldEncodeQueryParams() {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("input", "1 Main St & Co");
+    queryParams.add("shoesize", "9");
+    queryParams.add("shoesize", "10");
+    assertSameAsBuilder("/addresses", queryParams);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectMissingPathParams() {
+    PathTemplate.compile("/hotels/{hotelId}").expand(BASE_URL, null);
+  }
+
+  @Test
+  public void shouldOnlyNamePathsWithPlaceHolders() {
+    assertEquals("/hotels/{hotelId}", PathTemplate.name("/hotels/{hotelId}"));
+    assertEquals("other", PathTemplate.name("/hotels/42"));
+    assertEquals("other", PathTemplate.name("/hotels/{42"));
+  }
+
+  private void assertSameAsBuilder(
+      String path, MultiValueMap<String, String> queryParams, Object... pathParams) {
+    String expected =
+        UriComponentsBuilder.fromHttpUrl(BASE_URL)
+            .path(path)
+            .queryParams(queryParams)
+            .buildAndExpand(pathParams)
+            .encode()
+            .toUriString();
+    assertEquals(expected, PathTemplate.compile(path).expand(BASE_URL, queryParams, pathParams));
+  }
+}
@@ -1,27 +1,66 @@
 package uk.gov.ons.ctp.common.rest;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.junit.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.ExpectedCount;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.ctp.common.config.CustomCircuitBreakerConfig;
 import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.rest.RestClientConfig.BinaryFormat;
+import uk.gov.ons.ctp.common.rest.RestClientConfig.ResilienceScope;
 
 /** Test the RestClient class */
 public class RestClientTest {
@@ -328,6 +367,1160 @@ public class RestClientTest {
     mockRequest(HttpStatus.UNAUTHORIZED, HttpStatus.INTERNAL_SERVER_ERROR, true);
   }
 
+  @Test
+  public void testStreamResourcesOk() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels"))
+        .andExpect(method(HttpMethod.GET))
+        .andExpect(header("Accept", MediaType.APPLICATION_JSON_VALUE))
+        .andRespond(
+            withSuccess(
+                "[{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"},{ \"hairColor\" : \"brown\", \"shoeSize\" : \"12\"}]",
+                MediaType.APPLICATION_JSON));
+
+    List<FakeDTO> fakeDTOs = new ArrayList<>();
+    long count = restClient.streamResources("/hotels", FakeDTO.class, fakeDTOs::add);
+    mockServer.verify();
+    assertEquals(2, count);
+    assertEquals("blonde", fakeDTOs.get(0).getHairColor());
+    assertEquals(Integer.valueOf(12), fakeDTOs.get(1).getShoeSize());
+  }
+
+  @Test
+  public void testStreamResourcesEmptyArray() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels"))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+    long count = restClient.streamResources("/hotels", FakeDTO.class, dto -> fail());
+    mockServer.verify();
+    assertEquals(0, count);
+  }
+
+  @Test
+  public void testStreamResourcesFailsWithNonArrayResponse() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.streamResources("/hotels", FakeDTO.class, dto -> fail()));
+    mockServer.verify();
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+  }
+
+  @Test
+  public void testStreamResourcesNotFound() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels"))
+        .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.streamResources("/hotels", FakeDTO.class, dto -> fail()));
+    mockServer.verify();
+    assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    assertEquals(HttpStatus.NOT_FOUND, ((HttpStatusCodeException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  public void testStreamResourcesConsumerFailureIsPropagated() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels"))
+        .andRespond(
+            withSuccess(
+                "[{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}]",
+                MediaType.APPLICATION_JSON));
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                restClient.streamResources(
+                    "/hotels",
+                    FakeDTO.class,
+                    dto -> {
+                      throw new IllegalStateException("stop");
+                    }));
+    mockServer.verify();
+    assertEquals("stop", e.getMessage());
+  }
+
+  @Test(timeout = 10000)
+  public void testStreamResourcesConsumerFailureAbortsRequest() throws Exception {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          // An endless array, which can only be read to the end by closing the connection
+          byte[] element = "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"},".getBytes();
+          exchange.getResponseHeaders().set("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write('[');
+            while (true) {
+              out.write(element);
+            }
+          } catch (IOException e) {
+            exchange.close();
+          }
+        });
+    server.start();
+    try {
+      RestClientConfig config =
+          RestClientConfig.builder().port(Integer.toString(server.getAddress().getPort())).build();
+      RestClient restClient = new RestClient(config);
+
+      IllegalStateException e =
+          assertThrows(
+              IllegalStateException.class,
+              () ->
+                  restClient.streamResources(
+                      "/hotels",
+                      FakeDTO.class,
+                      dto -> {
+                        throw new IllegalStateException("stop");
+                      }));
+      assertEquals("stop", e.getMessage());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testStreamResourcesMalformedArrayNotCountedAsEndpointFailure() throws Exception {
+    AtomicInteger malformedRequests = new AtomicInteger();
+    AtomicInteger validRequests = new AtomicInteger();
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    HttpServer malformed =
+        fakeArrayServer(serverExecutor, malformedRequests, "[{ \"hairColor\" : ]");
+    HttpServer valid =
+        fakeArrayServer(
+            serverExecutor, validRequests, "[{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}]");
+    try {
+      MeterRegistry meterRegistry = new SimpleMeterRegistry();
+      RestClientConfig config =
+          RestClientConfig.builder()
+              .endpoints(
+                  List.of(
+                      "localhost:" + malformed.getAddress().getPort(),
+                      "localhost:" + valid.getAddress().getPort()))
+              .outlierConsecutiveFailures(1)
+              .outlierEjectionMillis(60000)
+              .build();
+      RestClient restClient =
+          new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+
+      // The malformed endpoint isn't ejected, so calls still alternate between them
+      for (int i = 0; i < 4; i++) {
+        try {
+          restClient.streamResources("/hotels", FakeDTO.class, dto -> {});
+        } catch (ResponseStatusException e) {
+          assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+        }
+      }
+      assertEquals(2, malformedRequests.get());
+      assertEquals(2, validRequests.get());
+      assertTrue(
+          meterRegistry
+              .find(RequestMetrics.TIMER_NAME)
+              .tag("status", "io_error")
+              .timers()
+              .isEmpty());
+    } finally {
+      malformed.stop(0);
+      valid.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRequestMetricsTaggedWithPathTemplate() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClient restClient =
+        new RestClient(
+            new RestClientConfig(),
+            Map.of(HttpStatus.NOT_FOUND, HttpStatus.BAD_REQUEST),
+            HttpStatus.INTERNAL_SERVER_ERROR,
+            meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/43"))
+        .andRespond(withStatus(HttpStatus.NOT_FOUND));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/44"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "43"));
+    // A path built by the caller isn't used as a tag
+    restClient.getResource("/hotels/44", FakeDTO.class);
+    mockServer.verify();
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    assertEquals(1, meterRegistry.get("rest.client.requests").tag("uri", "other").timer().count());
+
+    for (String status : List.of("2xx", "4xx")) {
+      assertEquals(
+          1,
+          meterRegistry
+              .get("rest.client.requests")
+              .tag("method", "GET")
+              .tag("uri", "/hotels/{hotelId}")
+              .tag("status", status)
+              .timer()
+              .count());
+    }
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("rest.client.errors")
+            .tag("status", "404")
+            .tag("mappedStatus", "400")
+            .counter()
+            .count(),
+        0);
+  }
+
+  @Test
+  public void testGetResourceFailsFastOnceDeadlineExceeded() throws CTPException {
+    RestClient restClient = new RestClient();
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.createServer(restClient.getRestTemplate());
+
+    ResponseStatusException e;
+    try (Deadline.Scope scope = Deadline.after(0).attach()) {
+      e =
+          assertThrows(
+              ResponseStatusException.class,
+              () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    }
+    mockServer.verify();
+    assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatus());
+  }
+
+  @Test
+  public void testSmileUsedOnceServerAnswersInIt() throws Exception {
+    RestClientConfig config = RestClientConfig.builder().binaryFormat(BinaryFormat.SMILE).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+    MediaType smile = MediaType.valueOf("application/x-jackson-smile");
+    FakeDTO fakeDTO = new FakeDTO("blue", 52);
+    byte[] smileBody = new ObjectMapper(new SmileFactory()).writeValueAsBytes(fakeDTO);
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    // Bodies are sent as JSON until the server has shown it understands Smile
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+        .andRespond(
+            withSuccess("{\"hairColor\":\"blue\",\"shoeSize\":52}", MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(
+            header(HttpHeaders.ACCEPT, "application/x-jackson-smile, application/json;q=0.9"))
+        .andRespond(withSuccess(smileBody, smile));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.CONTENT_TYPE, smile.toString()))
+        .andRespond(withSuccess(smileBody, smile));
+    // A Smile body which is refused is sent again as JSON, as are later bodies
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.CONTENT_TYPE, smile.toString()))
+        .andRespond(withStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+    mockServer
+        .expect(ExpectedCount.times(2), requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+        .andRespond(withSuccess(smileBody, smile));
+
+    restClient.postResource("/hotels/{hotelId}", fakeDTO, FakeDTO.class, "42");
+    assertEquals(fakeDTO, restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(
+          fakeDTO, restClient.postResource("/hotels/{hotelId}", fakeDTO, FakeDTO.class, "42"));
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void testGetResourceCachedForMaxAge() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClient restClient = cachingClient(meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("max-age=60");
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.once(), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                    "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}",
+                    MediaType.APPLICATION_JSON)
+                .headers(headers));
+
+    FakeDTO first = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    FakeDTO second = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    mockServer.verify();
+    assertSame(first, second);
+    assertEquals(1.0, cacheCount(meterRegistry, "hit"), 0);
+    assertEquals(1.0, cacheCount(meterRegistry, "miss"), 0);
+  }
+
+  @Test
+  public void testCachedResponseMatchesMissForOneWayMapping() throws CTPException {
+    RestClient restClient = cachingClient(new SimpleMeterRegistry());
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("max-age=60");
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.once(), requestTo("http://localhost:8080/users/42"))
+        .andRespond(
+            withSuccess(
+                    "{ \"hairColor\" : \"blonde\", \"password\" : \"secret\", \"age\" : 40}",
+                    MediaType.APPLICATION_JSON)
+                .headers(headers));
+
+    OneWayDTO miss = restClient.getResource("/users/{userId}", OneWayDTO.class, "42");
+    OneWayDTO hit = restClient.getResource("/users/{userId}", OneWayDTO.class, "42");
+    mockServer.verify();
+    assertEquals("secret", miss.getPassword());
+    assertEquals(miss, hit);
+    assertEquals("secret", hit.getPassword());
+  }
+
+  @Test
+  public void testGetResourceRevalidatedWithETag() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClient restClient = cachingClient(meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("no-cache");
+    headers.setETag("\"v1\"");
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                    "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}",
+                    MediaType.APPLICATION_JSON)
+                .headers(headers));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+    FakeDTO first = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    FakeDTO second = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    mockServer.verify();
+    assertSame(first, second);
+    assertEquals(1.0, cacheCount(meterRegistry, "revalidated"), 0);
+  }
+
+  @Test
+  public void testGetResourceNotCachedWhenNoStore() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClient restClient = cachingClient(meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("no-store, max-age=60");
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.twice(), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                    "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}",
+                    MediaType.APPLICATION_JSON)
+                .headers(headers));
+
+    restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    mockServer.verify();
+    assertEquals(0.0, cacheCount(meterRegistry, "hit"), 0);
+    assertEquals(2.0, cacheCount(meterRegistry, "miss"), 0);
+  }
+
+  @Test
+  public void testConnectionPoolGaugesRegistered() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClientConfig config =
+        RestClientConfig.builder()
+            .connectionManagerDefaultMaxPerRoute(4)
+            .connectionManagerMaxTotal(11)
+            .connectionTimeToLiveMillis(60000)
+            .idleConnectionEvictMillis(30000)
+            .keepAliveMillis(10000)
+            .build();
+    new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+
+    assertEquals(11.0, poolGauge(meterRegistry, "all", "max"), 0);
+    assertEquals(4.0, poolGauge(meterRegistry, "http://localhost:8080", "max"), 0);
+    assertEquals(0.0, poolGauge(meterRegistry, "all", "leased"), 0);
+    assertEquals(0.0, poolGauge(meterRegistry, "http://localhost:8080", "pending"), 0);
+  }
+
+  @Test
+  public void testConnectionPoolGaugesSumClientsForSameHost() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<RestClient> clients =
+        List.of(
+            new RestClient(
+                RestClientConfig.builder().connectionManagerMaxTotal(11).build(),
+                Map.of(),
+                HttpStatus.INTERNAL_SERVER_ERROR,
+                meterRegistry),
+            new RestClient(
+                RestClientConfig.builder().connectionManagerMaxTotal(5).build(),
+                Map.of(),
+                HttpStatus.INTERNAL_SERVER_ERROR,
+                meterRegistry));
+
+    assertEquals(16.0, poolGauge(meterRegistry, "all", "max"), 0);
+    // The gauges hold the pools weakly
+    Reference.reachabilityFence(clients);
+  }
+
+  @Test
+  public void testInitAgainAndCloseReleaseConnectionPool() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClient restClient =
+        new RestClient(
+            RestClientConfig.builder().connectionManagerMaxTotal(11).build(),
+            Map.of(),
+            HttpStatus.INTERNAL_SERVER_ERROR,
+            meterRegistry);
+
+    // The pool from the constructor is replaced, not added to
+    restClient.init();
+    assertEquals(11.0, poolGauge(meterRegistry, "all", "max"), 0);
+
+    restClient.close();
+    assertEquals(0.0, poolGauge(meterRegistry, "all", "max"), 0);
+    // Closing again is harmless
+    restClient.close();
+  }
+
+  @Test
+  public void testCircuitBreakerOpensAfterServerErrors() throws CTPException {
+    CustomCircuitBreakerConfig circuitBreaker = new CustomCircuitBreakerConfig();
+    circuitBreaker.setMinNumberOfCalls(2);
+    circuitBreaker.setSlidingWindowSize(2);
+    RestClientConfig config = RestClientConfig.builder().circuitBreaker(circuitBreaker).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.twice(), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+    for (int i = 0; i < 2; i++) {
+      assertThrows(
+          ResponseStatusException.class,
+          () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    }
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    mockServer.verify();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+  }
+
+  @Test
+  public void testLargeErrorBodyTruncated() throws CTPException {
+    RestClientConfig config = RestClientConfig.builder().errorBodyMaxBytes(100).build();
+    RestClient restClient = new RestClient(config);
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.createServer(restClient.getRestTemplate());
+    String errorPage = "<html><body>" + "Service unavailable ".repeat(500) + "</body></html>";
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.TEXT_HTML)
+                .body(errorPage));
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    assertEquals(errorPage.substring(0, 100), e.getReason());
+    mockServer.verify();
+  }
+
+  @Test
+  public void testPathScopedBreakerSharedByPathsWithoutParams() throws CTPException {
+    CustomCircuitBreakerConfig circuitBreaker = new CustomCircuitBreakerConfig();
+    circuitBreaker.setMinNumberOfCalls(2);
+    circuitBreaker.setSlidingWindowSize(2);
+    RestClientConfig config =
+        RestClientConfig.builder()
+            .circuitBreaker(circuitBreaker)
+            .resilienceScope(ResilienceScope.PATH)
+            .build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/1"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/2"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+    for (int i = 1; i <= 2; i++) {
+      String path = "/hotels/" + i;
+      assertThrows(
+          ResponseStatusException.class, () -> restClient.getResource(path, FakeDTO.class));
+    }
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/3", FakeDTO.class));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    mockServer.verify();
+  }
+
+  @Test
+  public void testBreakerRejectionDoesNotResetEndpointFailures() throws CTPException {
+    CustomCircuitBreakerConfig circuitBreaker = new CustomCircuitBreakerConfig();
+    circuitBreaker.setMinNumberOfCalls(2);
+    circuitBreaker.setSlidingWindowSize(2);
+    circuitBreaker.setFailureRateThreshold(100);
+    RestClientConfig config =
+        RestClientConfig.builder()
+            .endpoints(List.of("hosta:8080", "hostb:9090"))
+            .outlierConsecutiveFailures(2)
+            .outlierEjectionMillis(60000)
+            .circuitBreaker(circuitBreaker)
+            .resilienceScope(ResilienceScope.PATH)
+            .build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://hosta:8080/hotels/42"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+    mockServer
+        .expect(requestTo("http://hostb:9090/hotels/42"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+    mockServer
+        .expect(requestTo("http://hosta:8080/rooms/7"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+    mockServer
+        .expect(ExpectedCount.twice(), requestTo("http://hostb:9090/rooms/7"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    // Each endpoint fails once, which opens the breaker for the hotels path
+    for (int i = 0; i < 2; i++) {
+      assertThrows(
+          ResponseStatusException.class,
+          () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    }
+    for (int i = 0; i < 2; i++) {
+      ResponseStatusException e =
+          assertThrows(
+              ResponseStatusException.class,
+              () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+
+    // The rejected calls didn't reset the first endpoint, so its second failure ejects it
+    assertThrows(
+        ResponseStatusException.class,
+        () -> restClient.getResource("/rooms/{roomId}", FakeDTO.class, "7"));
+    for (int i = 0; i < 2; i++) {
+      restClient.getResource("/rooms/{roomId}", FakeDTO.class, "7");
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void testCircuitBreakerIgnoresClientErrors() throws CTPException {
+    CustomCircuitBreakerConfig circuitBreaker = new CustomCircuitBreakerConfig();
+    circuitBreaker.setMinNumberOfCalls(2);
+    circuitBreaker.setSlidingWindowSize(2);
+    RestClientConfig config = RestClientConfig.builder().circuitBreaker(circuitBreaker).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.times(3), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+    for (int i = 0; i < 3; i++) {
+      ResponseStatusException e =
+          assertThrows(
+              ResponseStatusException.class,
+              () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+      assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void testBulkheadRejectsExcessConcurrentCalls() throws Exception {
+    RestClientConfig config =
+        RestClientConfig.builder()
+            .bulkheadMaxConcurrentCalls(1)
+            .resilienceScope(ResilienceScope.PATH)
+            .build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    CountDownLatch inCall = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            request -> {
+              inCall.countDown();
+              try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return withSuccess(
+                      "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}",
+                      MediaType.APPLICATION_JSON)
+                  .createResponse(request);
+            });
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<FakeDTO> slowCall =
+          executor.submit(() -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+      assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+      ResponseStatusException e =
+          assertThrows(
+              ResponseStatusException.class,
+              () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "43"));
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+
+      release.countDown();
+      assertEquals("blonde", slowCall.get(5, TimeUnit.SECONDS).getHairColor());
+      mockServer.verify();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRateLimitRejectsCallsBeyondLimit() throws Exception {
+    RestClientConfig config =
+        RestClientConfig.builder().rateLimitCalls(1).rateLimitPeriodMillis(60000).build();
+    RestClient restClient = new RestClient(config);
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.createServer(restClient.getRestTemplate());
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    assertEquals(
+        "blonde", restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42").getHairColor());
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "43"));
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+    mockServer.verify();
+  }
+
+  @Test
+  public void testRateLimitWaitsForNextPeriod() throws Exception {
+    RestClientConfig config =
+        RestClientConfig.builder()
+            .rateLimitCalls(1)
+            .rateLimitPeriodMillis(200)
+            .rateLimitMaxWaitMillis(1000)
+            .build();
+    RestClient restClient = new RestClient(config);
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.createServer(restClient.getRestTemplate());
+    mockServer
+        .expect(ExpectedCount.times(2), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    assertEquals(
+        "blonde", restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42").getHairColor());
+    mockServer.verify();
+  }
+
+  @Test
+  public void testGetResourceRetriedAfterTooManyRequests() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClientConfig config = RestClientConfig.builder().retryMaxAttempts(3).build();
+    RestClient restClient =
+        new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "0");
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.twice(), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(
+            withSuccess(
+                "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}", MediaType.APPLICATION_JSON));
+
+    FakeDTO fakeDTO = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    mockServer.verify();
+    assertEquals("blonde", fakeDTO.getHairColor());
+    assertEquals(
+        2.0, meterRegistry.get("rest.client.retries").tag("status", "429").counter().count(), 0);
+  }
+
+  @Test
+  public void testGetResourceFailsWhenRetriesExhausted() throws CTPException {
+    RestClientConfig config =
+        RestClientConfig.builder().retryMaxAttempts(2).retryInitialBackoffMillis(1).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.twice(), requestTo("http://localhost:8080/hotels/42"))
+        .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42"));
+    mockServer.verify();
+    assertEquals(
+        HttpStatus.SERVICE_UNAVAILABLE, ((HttpStatusCodeException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  public void testPostResourceNotRetried() throws CTPException {
+    RestClientConfig config =
+        RestClientConfig.builder().retryMaxAttempts(3).retryInitialBackoffMillis(1).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(ExpectedCount.once(), requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(method(HttpMethod.POST))
+        .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+    assertThrows(
+        ResponseStatusException.class,
+        () ->
+            restClient.postResource(
+                "/hotels/{hotelId}", new FakeDTO("blue", 52), String.class, "42"));
+    mockServer.verify();
+  }
+
+  @Test
+  public void testGetResourcesByIdsCollectsResultsAndFailures() throws CTPException {
+    RestClient restClient = new RestClient();
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+    for (String id : List.of("1", "3")) {
+      mockServer
+          .expect(requestTo("http://localhost:8080/hotels/" + id))
+          .andRespond(
+              withSuccess(
+                  "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"" + id + "\"}",
+                  MediaType.APPLICATION_JSON));
+    }
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/2"))
+        .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+    BulkResult<String, FakeDTO> result =
+        restClient.getResourcesByIds(
+            "/hotels/{hotelId}", List.of("1", "2", "3", "1"), FakeDTO.class, 3);
+    mockServer.verify();
+    assertEquals(List.of("1", "3"), new ArrayList<>(result.getResults().keySet()));
+    assertEquals(Integer.valueOf(3), result.getResults().get("3").getShoeSize());
+    assertTrue(result.hasFailures());
+    assertEquals(HttpStatus.NOT_FOUND, result.getFailures().get("2").getStatus());
+  }
+
+  @Test
+  public void testGetResourcesByIdsWithNoIds() throws CTPException {
+    RestClient restClient = new RestClient();
+
+    BulkResult<String, FakeDTO> result =
+        restClient.getResourcesByIds("/hotels/{hotelId}", List.of(), FakeDTO.class, 3);
+    assertTrue(result.getResults().isEmpty());
+    assertTrue(result.getFailures().isEmpty());
+  }
+
+  @Test
+  public void testPostResourceCompressedAboveThreshold() throws CTPException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestClientConfig config =
+        RestClientConfig.builder().requestCompressionThresholdBytes(10).build();
+    RestClient restClient =
+        new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    FakeDTO fakeDTO = new FakeDTO("blue".repeat(100), 52);
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    mockServer
+        .expect(requestTo("http://localhost:8080/hotels/42"))
+        .andExpect(header(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andExpect(
+            request -> {
+              byte[] body = ((MockClientHttpRequest) request).getBodyAsBytes();
+              try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(json, json.contains(fakeDTO.getHairColor()));
+              }
+            })
+        .andRespond(withSuccess("ABC123", MediaType.TEXT_PLAIN));
+
+    restClient.postResource("/hotels/{hotelId}", fakeDTO, String.class, "42");
+    mockServer.verify();
+    assertTrue(
+        meterRegistry
+                .get("rest.client.compression.saved.bytes")
+                .tag("direction", "request")
+                .counter()
+                .count()
+            > 0);
+  }
+
+  @Test
+  public void testGetResourceDecompressesResponse() throws Exception {
+    String json = "{ \"hairColor\" : \"" + "blonde".repeat(100) + "\", \"shoeSize\" : \"8\"}";
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          exchange.getResponseHeaders().set("Content-Type", "application/json");
+          exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+          exchange.sendResponseHeaders(200, compressed.size());
+          try (OutputStream out = exchange.getResponseBody()) {
+            compressed.writeTo(out);
+          }
+        });
+    server.start();
+    try {
+      SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+      RestClientConfig config =
+          RestClientConfig.builder().port(Integer.toString(server.getAddress().getPort())).build();
+      RestClient restClient =
+          new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+
+      FakeDTO fakeDTO = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+      assertEquals(Integer.valueOf(8), fakeDTO.getShoeSize());
+      assertEquals(
+          json.length() - compressed.size(),
+          meterRegistry
+              .get("rest.client.compression.saved.bytes")
+              .tag("direction", "response")
+              .counter()
+              .count(),
+          0);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testDownloadResourceToStreamAndFile() throws Exception {
+    RestClient restClient = new RestClient();
+    byte[] export = new byte[100_000];
+    new Random(42).nextBytes(export);
+
+    MockRestServiceServer mockServer =
+        MockRestServiceServer.createServer(restClient.getRestTemplate());
+    for (int i = 0; i < 2; i++) {
+      mockServer
+          .expect(requestTo("http://localhost:8080/exports/42"))
+          .andExpect(header(HttpHeaders.ACCEPT, MediaType.ALL_VALUE))
+          .andRespond(withSuccess(export, MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(export.length, restClient.downloadResource("/exports/{exportId}", out, "42"));
+    assertArrayEquals(export, out.toByteArray());
+
+    Path file = Files.createTempFile("export", ".bin");
+    try {
+      assertEquals(
+          export.length,
+          restClient.downloadResource("/exports/{exportId}", file, null, null, "42"));
+      assertArrayEquals(export, Files.readAllBytes(file));
+    } finally {
+      Files.delete(file);
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void testDownloadResourceFailingMidStreamKeepsExistingFile() throws Exception {
+    Path dir = Files.createTempDirectory("exports");
+    Path file = dir.resolve("export.bin");
+    Files.write(file, "original".getBytes(StandardCharsets.UTF_8));
+
+    // Promises more bytes than it sends, then drops the connection
+    ExecutorService serverExecutor = Executors.newSingleThreadExecutor();
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverExecutor.submit(
+          () -> {
+            try (Socket socket = server.accept()) {
+              socket.getInputStream().read(new byte[8192]);
+              OutputStream out = socket.getOutputStream();
+              out.write(
+                  ("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\n"
+                          + "Content-Length: 100000\r\n\r\n")
+                      .getBytes(StandardCharsets.US_ASCII));
+              out.write(new byte[50_000]);
+              out.flush();
+            }
+            return null;
+          });
+      RestClientConfig config =
+          RestClientConfig.builder().port(Integer.toString(server.getLocalPort())).build();
+      RestClient restClient = new RestClient(config);
+
+      assertThrows(
+          ResponseStatusException.class,
+          () -> restClient.downloadResource("/exports/{exportId}", file, null, null, "42"));
+      assertEquals("original", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(List.of(file), files.collect(Collectors.toList()));
+      }
+    } finally {
+      serverExecutor.shutdownNow();
+      Files.delete(file);
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void testUploadResourceStreamsBody() throws Exception {
+    byte[] upload = new byte[1_000_000];
+    new Random(42).nextBytes(upload);
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    List<String> transferEncodings = new ArrayList<>();
+
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          transferEncodings.add(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+          try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(received);
+          }
+          byte[] json = "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}".getBytes();
+          exchange.getResponseHeaders().set("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, json.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+          }
+        });
+    server.start();
+    try {
+      RestClientConfig config =
+          RestClientConfig.builder().port(Integer.toString(server.getAddress().getPort())).build();
+      RestClient restClient = new RestClient(config);
+
+      FakeDTO fakeDTO =
+          restClient.uploadResource(
+              HttpMethod.POST,
+              "/uploads/{uploadId}",
+              new ByteArrayInputStream(upload),
+              -1,
+              FakeDTO.class,
+              "42");
+      assertEquals(Integer.valueOf(8), fakeDTO.getShoeSize());
+      assertArrayEquals(upload, received.toByteArray());
+      // A body of unknown length is sent in chunks rather than buffered to find its length
+      assertEquals(List.of("chunked"), transferEncodings);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testSlowGetResourceHedged() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        "/",
+        exchange -> {
+          try {
+            if (requests.incrementAndGet() == 1) {
+              Thread.sleep(5000);
+            }
+            byte[] json = "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}".getBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+              out.write(json);
+            }
+          } catch (InterruptedException | IOException e) {
+            exchange.close();
+          }
+        });
+    server.start();
+    try {
+      RestClientConfig config =
+          RestClientConfig.builder()
+              .port(Integer.toString(server.getAddress().getPort()))
+              .hedgeDelayMillis(50)
+              .hedgeMaxPercent(100)
+              .build();
+      RestClient restClient = new RestClient(config);
+
+      long start = System.currentTimeMillis();
+      FakeDTO fakeDTO = restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+      assertEquals(Integer.valueOf(8), fakeDTO.getShoeSize());
+      assertEquals(2, requests.get());
+      assertTrue(System.currentTimeMillis() - start < 5000);
+    } finally {
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLosingHedgeNotCountedAsEndpointFailure() throws Exception {
+    AtomicInteger slowRequests = new AtomicInteger();
+    AtomicInteger fastRequests = new AtomicInteger();
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    HttpServer slow = fakeDtoServer(serverExecutor, slowRequests, 5000);
+    HttpServer fast = fakeDtoServer(serverExecutor, fastRequests, 0);
+    try {
+      MeterRegistry meterRegistry = new SimpleMeterRegistry();
+      RestClientConfig config =
+          RestClientConfig.builder()
+              .endpoints(
+                  List.of(
+                      "localhost:" + slow.getAddress().getPort(),
+                      "localhost:" + fast.getAddress().getPort()))
+              .outlierConsecutiveFailures(1)
+              .outlierEjectionMillis(60000)
+              .hedgeDelayMillis(200)
+              .hedgeMaxPercent(100)
+              .build();
+      RestClient restClient =
+          new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+
+      // The first call to the slow endpoint is hedged to the fast one, and then aborted
+      restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+      assertEquals(1, slowRequests.get());
+      assertEquals(1, fastRequests.get());
+      Thread.sleep(200);
+
+      // Neither endpoint was ejected, so calls still alternate between them
+      for (int i = 0; i < 4; i++) {
+        restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+      }
+      assertEquals(3, slowRequests.get());
+      assertEquals(3, fastRequests.get());
+      assertTrue(
+          meterRegistry
+              .find(RequestMetrics.TIMER_NAME)
+              .tag("status", "io_error")
+              .timers()
+              .isEmpty());
+    } finally {
+      slow.stop(0);
+      fast.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testGetResourceBalancedAcrossEndpoints() throws CTPException {
+    RestClientConfig config =
+        RestClientConfig.builder().endpoints(List.of("hosta:8080", "hostb:9090")).build();
+    RestClient restClient = new RestClient(config);
+    RestTemplate restTemplate = restClient.getRestTemplate();
+
+    MockRestServiceServer mockServer = MockRestServiceServer.createServer(restTemplate);
+    for (String endpoint : List.of("hosta:8080", "hostb:9090", "hosta:8080")) {
+      mockServer
+          .expect(requestTo("http://" + endpoint + "/hotels/42"))
+          .andRespond(
+              withSuccess(
+                  "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}",
+                  MediaType.APPLICATION_JSON));
+    }
+
+    for (int i = 0; i < 3; i++) {
+      restClient.getResource("/hotels/{hotelId}", FakeDTO.class, "42");
+    }
+    mockServer.verify();
+  }
+
   private void mockRequest(HttpStatus responseStatus, HttpStatus mapStatus, boolean cause)
       throws CTPException {
     RestClientConfig config =
@@ -360,4 +1553,69 @@ public class RestClientTest {
       }
     }
   }
+
+  /** A server which answers with a FakeDTO, delaying its first answer by delayMillis. */
+  private HttpServer fakeDtoServer(
+      ExecutorService serverExecutor, AtomicInteger requests, long delayMillis) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        "/",
+        exchange -> {
+          try {
+            if (requests.incrementAndGet() == 1 && delayMillis > 0) {
+              Thread.sleep(delayMillis);
+            }
+            byte[] json = "{ \"hairColor\" : \"blonde\", \"shoeSize\" : \"8\"}".getBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+              out.write(json);
+            }
+          } catch (InterruptedException | IOException e) {
+            exchange.close();
+          }
+        });
+    server.start();
+    return server;
+  }
+
+  private HttpServer fakeArrayServer(
+      ExecutorService serverExecutor, AtomicInteger requests, String body) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        "/",
+        exchange -> {
+          requests.incrementAndGet();
+          byte[] json = body.getBytes();
+          exchange.getResponseHeaders().set("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, json.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+          }
+        });
+    server.start();
+    return server;
+  }
+
+  private RestClient cachingClient(MeterRegistry meterRegistry) throws CTPException {
+    RestClientConfig config = RestClientConfig.builder().responseCacheMaxEntries(10).build();
+    return new RestClient(config, Map.of(), HttpStatus.INTERNAL_SERVER_ERROR, meterRegistry);
+  }
+
+  private double cacheCount(MeterRegistry meterRegistry, String result) {
+    return meterRegistry.get("rest.client.cache.requests").tag("result", result).counter().count();
+  }
+
+  private double poolGauge(MeterRegistry meterRegistry, String route, String state) {
+    return meterRegistry
+        .get("rest.client.pool.connections")
+        .tag("route", route)
+        .tag("state", state)
+        .gauge()
+        .value();
+  }
 }
@@ -0,0 +1,89 @@
+package uk.gov.ons.ctp.common.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryContext;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import uk.gov.ons.ctp.common.rest.RetryAfterRetryPolicy.RetryAfterContext;
+
+/** Test the retry decisions and delays of the RetryAfterRetryPolicy */
+public class RetryAfterRetryPolicyTest {
+
+  @Test
+  public void shouldReadRetryAfterSeconds() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "3");
+    assertEquals(3000, RetryAfterRetryPolicy.retryAfterMillis(headers));
+  }
+
+  @Test
+  public void shouldReadRetryAfterDate() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setDate(HttpHeaders.RETRY_AFTER, System.currentTimeMillis() + 60000);
+    long delay = RetryAfterRetryPolicy.retryAfterMillis(headers);
+    assertTrue(Long.toString(delay), delay > 55000 && delay <= 60000);
+  }
+
+  @Test
+  public void shouldIgnoreMissingOrInvalidRetryAfter() {
+    HttpHeaders headers = new HttpHeaders();
+    assertEquals(-1, RetryAfterRetryPolicy.retryAfterMillis(headers));
+    headers.set(HttpHeaders.RETRY_AFTER, "soon");
+    assertEquals(-1, RetryAfterRetryPolicy.retryAfterMillis(headers));
+  }
+
+  @Test
+  public void shouldRetryTooManyRequestsWithJitteredBackoff() {
+    RetryAfterRetryPolicy policy = new RetryAfterRetryPolicy(3, 100, 1000, 2.0, 10000);
+    RetryContext context = policy.open(null);
+    policy.registerThrowable(context, failure(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders()));
+    assertTrue(policy.canRetry(context));
+    long delay = ((RetryAfterContext) context).getDelayMillis();
+    assertTrue(Long.toString(delay), delay >= 0 && delay < 100);
+
+    policy.registerThrowable(context, failure(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders()));
+    assertTrue(policy.canRetry(context));
+    delay = ((RetryAfterContext) context).getDelayMillis();
+    assertTrue(Long.toString(delay), delay >= 0 && delay < 200);
+
+    policy.registerThrowable(context, failure(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders()));
+    assertFalse(policy.canRetry(context));
+  }
+
+  @Test
+  public void shouldNotRetryOtherFailures() {
+    RetryAfterRetryPolicy policy = new RetryAfterRetryPolicy(3, 100, 1000, 2.0, 10000);
+    RetryContext context = policy.open(null);
+    policy.registerThrowable(context, failure(HttpStatus.INTERNAL_SERVER_ERROR, null));
+    assertFalse(policy.canRetry(context));
+
+    context = policy.open(null);
+    policy.registerThrowable(context, new IllegalStateException());
+    assertFalse(policy.canRetry(context));
+  }
+
+  @Test
+  public void shouldNotRetryPastDeadline() {
+    RetryAfterRetryPolicy policy = new RetryAfterRetryPolicy(3, 100, 1000, 2.0, 5000);
+    RetryContext context = policy.open(null);
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "10");
+    policy.registerThrowable(context, failure(HttpStatus.SERVICE_UNAVAILABLE, headers));
+    assertFalse(policy.canRetry(context));
+  }
+
+  private Exception failure(HttpStatus status, HttpHeaders headers) {
+    return status.is4xxClientError()
+        ? HttpClientErrorException.create(
+            status, status.getReasonPhrase(), headers, new byte[0], StandardCharsets.UTF_8)
+        : HttpServerErrorException.create(
+            status, status.getReasonPhrase(), headers, new byte[0], StandardCharsets.UTF_8);
+  }
+}
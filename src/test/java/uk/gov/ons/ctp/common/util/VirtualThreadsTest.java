@@ -0,0 +1,39 @@
+package uk.gov.ons.ctp.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+/** Test the executors created for blocking calls */
+public class VirtualThreadsTest {
+
+  @Test
+  public void shouldRunOnNamedDaemonPlatformThreads() throws Exception {
+    ExecutorService executor = VirtualThreads.newExecutor("test-pool", 2, false);
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      assertEquals("test-pool", thread.getName());
+      assertTrue(thread.isDaemon());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldRunOnVirtualThreadsWhenAvailable() throws Exception {
+    ExecutorService executor = VirtualThreads.newExecutor("test-virtual", 2, true);
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      if (VirtualThreads.isAvailable()) {
+        assertEquals("test-virtual-0", thread.getName());
+      } else {
+        assertEquals("test-virtual", thread.getName());
+      }
+      assertTrue(thread.isDaemon());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}